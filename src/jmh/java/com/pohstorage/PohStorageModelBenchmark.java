@@ -0,0 +1,180 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.WidgetType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PohStorageModelBenchmark
+{
+	@Param({"10", "100", "1000", "5000"})
+	private int sets;
+
+	private int childCount;
+	private int[] types;
+	private int[] widths;
+	private int[] opacities;
+	private boolean[] hidden;
+	private String[] texts;
+	private int[] stored;
+
+	private static final int RESORTED_SETS = 4;
+
+	private PohStorageModel model;
+	private int resortCursor;
+	private int sortOrder = PohStorageModel.SORT_BY_COMPLETION;
+	private final PohStorageFilter filter = PohStorageFilter.compile("(partial AND missing<=2) OR name:~\"set 1\" OR items>=5");
+	private final BitSet filterMatches = new BitSet();
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		Random random = new Random(sets);
+		List<int[]> children = new ArrayList<int[]>();
+		List<String> names = new ArrayList<String>();
+		stored = new int[sets];
+
+		for (int set = 0; set < sets; set++)
+		{
+			// Outline, arrow and footer precede the header text, followed by the set's item icons
+			children.add(new int[]{WidgetType.GRAPHIC, 0, 0});
+			children.add(new int[]{WidgetType.GRAPHIC, 9, 0});
+			children.add(new int[]{WidgetType.GRAPHIC, 0, 0});
+			children.add(new int[]{WidgetType.TEXT, 0, 0});
+			names.add("Set " + random.nextInt(sets * 10));
+
+			int items = 1 + random.nextInt(8);
+			for (int item = 0; item < items; item++)
+			{
+				boolean isStored = random.nextBoolean();
+				stored[set] += isStored ? 1 : 0;
+				children.add(new int[]{WidgetType.GRAPHIC, PohStorageModel.WIDGET_ICON_WIDTH, isStored ? 0 : 150});
+			}
+
+			if (random.nextInt(10) == 0)
+			{
+				children.add(new int[]{WidgetType.GRAPHIC, PohStorageModel.WIDGET_DIVIDER_WIDTH, 0});
+			}
+		}
+
+		childCount = children.size();
+		types = new int[childCount];
+		widths = new int[childCount];
+		opacities = new int[childCount];
+		hidden = new boolean[childCount];
+		texts = new String[childCount];
+
+		int name = 0;
+		for (int i = 0; i < childCount; i++)
+		{
+			types[i] = children.get(i)[0];
+			widths[i] = children.get(i)[1];
+			opacities[i] = children.get(i)[2];
+			texts[i] = types[i] == WidgetType.TEXT ? names.get(name++) : null;
+		}
+
+		model = new PohStorageModel();
+		scan();
+		model.sort(PohStorageModel.SORT_BY_COMPLETION);
+		model.filter(true, true, true, null);
+	}
+
+	@Benchmark
+	public int scan()
+	{
+		model.beginScan(childCount);
+		for (int i = 0; i < childCount; i++)
+		{
+			model.setChild(i, types[i], widths[i], opacities[i], hidden[i], texts[i]);
+		}
+		model.scan();
+		return model.getSetCount();
+	}
+
+	@Benchmark
+	public int classify()
+	{
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			model.setStored(set, stored[set]);
+		}
+		return model.getType(0);
+	}
+
+	@Benchmark
+	public int filter()
+	{
+		model.filter(true, false, true, null);
+		return model.getVisibleCount();
+	}
+
+	@Benchmark
+	public int filterQuery()
+	{
+		filter.evaluate(model, filterMatches);
+		model.filter(true, true, true, filterMatches);
+		return model.getVisibleCount();
+	}
+
+	@Benchmark
+	public int sort()
+	{
+		// A change of order sorts every set
+		sortOrder = sortOrder == PohStorageModel.SORT_BY_COMPLETION ? PohStorageModel.SORT_BY_STORED : PohStorageModel.SORT_BY_COMPLETION;
+		model.sort(sortOrder);
+		model.filter(true, true, true, null);
+		return model.getVisibleSet(0);
+	}
+
+	@Benchmark
+	public int resort()
+	{
+		// A deposit or withdrawal changes the stored count of a few sets
+		for (int i = 0; i < RESORTED_SETS; i++)
+		{
+			int set = (int) ((resortCursor++ * 7919L) % model.getSetCount());
+			model.setStored(set, model.getStored(set) == 0 ? 1 : model.getStored(set) - 1);
+		}
+		model.sort(PohStorageModel.SORT_BY_COMPLETION);
+		model.filter(true, true, true, null);
+		return model.getVisibleSet(0);
+	}
+
+	@Benchmark
+	public int layout()
+	{
+		model.layout();
+		return model.getScrollHeight(0);
+	}
+
+	@Benchmark
+	public int pipeline()
+	{
+		scan();
+		model.sort(PohStorageModel.SORT_BY_NAME);
+		model.filter(true, true, true, null);
+		model.layout();
+		return model.getScrollHeight(0);
+	}
+}
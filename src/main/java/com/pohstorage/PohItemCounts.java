@@ -0,0 +1,117 @@
+package com.pohstorage;
+
+import net.runelite.api.Item;
+
+import java.util.Arrays;
+
+/**
+ * Counts of every item held in an item container, kept up to date from the slots that differ on each change instead
+ * of being recounted, so a large container such as the bank costs one pass over its slots and no map rebuild. Items
+ * that came into or left the container with the last update are listed by {@link #getChanged(int)}.
+ */
+public class PohItemCounts
+{
+	private static final int EMPTY = -1;
+
+	private final PohItemMap counts;
+	private int[] slotIds = new int[0];
+	private int[] slotQuantities = new int[0];
+	private int slotCount;
+	private int[] changed = new int[16];
+	private int changedCount;
+
+	public PohItemCounts(int expectedSize)
+	{
+		counts = new PohItemMap(expectedSize);
+	}
+
+	/**
+	 * Applies the differences between {@code items} and the slots of the previous update. Returns true when an item
+	 * came into or left the container.
+	 */
+	public boolean update(Item[] items)
+	{
+		changedCount = 0;
+		if (slotIds.length < items.length)
+		{
+			int previousLength = slotIds.length;
+			slotIds = Arrays.copyOf(slotIds, items.length);
+			slotQuantities = Arrays.copyOf(slotQuantities, items.length);
+			Arrays.fill(slotIds, previousLength, items.length, EMPTY);
+		}
+
+		int count = Math.max(items.length, slotCount);
+		for (int slot = 0; slot < count; slot++)
+		{
+			int id = EMPTY;
+			int quantity = 0;
+			// Placeholders hold no items
+			if (slot < items.length && items[slot].getId() >= 0 && items[slot].getQuantity() > 0)
+			{
+				id = items[slot].getId();
+				quantity = items[slot].getQuantity();
+			}
+
+			if (id == slotIds[slot] && quantity == slotQuantities[slot])
+			{
+				continue;
+			}
+
+			if (slotIds[slot] != EMPTY)
+			{
+				add(slotIds[slot], -slotQuantities[slot]);
+			}
+			if (id != EMPTY)
+			{
+				add(id, quantity);
+			}
+			slotIds[slot] = id;
+			slotQuantities[slot] = quantity;
+		}
+		slotCount = items.length;
+		return changedCount > 0;
+	}
+
+	public boolean contains(int itemId)
+	{
+		return counts.containsKey(itemId);
+	}
+
+	public int getCount(int itemId)
+	{
+		return counts.get(itemId, 0);
+	}
+
+	public int getChangedCount()
+	{
+		return changedCount;
+	}
+
+	public int getChanged(int index)
+	{
+		return changed[index];
+	}
+
+	public void clear()
+	{
+		counts.clear();
+		Arrays.fill(slotIds, 0, slotCount, EMPTY);
+		Arrays.fill(slotQuantities, 0, slotCount, 0);
+		slotCount = 0;
+		changedCount = 0;
+	}
+
+	private void add(int itemId, int delta)
+	{
+		int before = counts.get(itemId, 0);
+		int after = counts.addCount(itemId, delta);
+		if ((before > 0) != (after > 0))
+		{
+			if (changedCount == changed.length)
+			{
+				changed = Arrays.copyOf(changed, changedCount * 2);
+			}
+			changed[changedCount++] = itemId;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package com.pohstorage;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from item id to an int value. Negative keys are not supported.
+ */
+public class PohItemMap
+{
+	private static final int EMPTY = -1;
+
+	private int[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+
+	public PohItemMap()
+	{
+		this(16);
+	}
+
+	public PohItemMap(int expectedSize)
+	{
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		Arrays.fill(keys, EMPTY);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean containsKey(int key)
+	{
+		return key >= 0 && find(key) >= 0;
+	}
+
+	public int get(int key, int defaultValue)
+	{
+		int slot = key < 0 ? -1 : find(key);
+		return slot < 0 ? defaultValue : values[slot];
+	}
+
+	public void put(int key, int value)
+	{
+		if (key < 0)
+		{
+			return;
+		}
+
+		int slot = hash(key);
+		while (keys[slot] != EMPTY)
+		{
+			if (keys[slot] == key)
+			{
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size * 2 > keys.length)
+		{
+			rehash(keys.length << 1);
+		}
+	}
+
+	/**
+	 * Adds {@code delta} to the count stored for {@code key}, removing the key once its count reaches zero.
+	 */
+	public int addCount(int key, int delta)
+	{
+		int count = get(key, 0) + delta;
+		if (count == 0)
+		{
+			remove(key);
+		}
+		else
+		{
+			put(key, count);
+		}
+		return count;
+	}
+
+	public void remove(int key)
+	{
+		int gap = key < 0 ? -1 : find(key);
+		if (gap < 0)
+		{
+			return;
+		}
+
+		// Shift later entries of the probe chain back so lookups never stop at the removed slot
+		int next = (gap + 1) & mask;
+		while (keys[next] != EMPTY)
+		{
+			if (((next - hash(keys[next])) & mask) >= ((next - gap) & mask))
+			{
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+
+		keys[gap] = EMPTY;
+		size--;
+	}
+
+	public void clear()
+	{
+		if (size > 0)
+		{
+			Arrays.fill(keys, EMPTY);
+			size = 0;
+		}
+	}
+
+	public int capacity()
+	{
+		return keys.length;
+	}
+
+	public boolean isOccupied(int slot)
+	{
+		return keys[slot] != EMPTY;
+	}
+
+	public int keyAt(int slot)
+	{
+		return keys[slot];
+	}
+
+	public int valueAt(int slot)
+	{
+		return values[slot];
+	}
+
+	private int find(int key)
+	{
+		int slot = hash(key);
+		while (keys[slot] != EMPTY)
+		{
+			if (keys[slot] == key)
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int hash(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+
+		keys = new int[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		size = 0;
+		Arrays.fill(keys, EMPTY);
+
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] != EMPTY)
+			{
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+}
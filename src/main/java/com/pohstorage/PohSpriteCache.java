@@ -0,0 +1,140 @@
+package com.pohstorage;
+
+import net.runelite.api.Client;
+import net.runelite.api.SpritePixels;
+import net.runelite.client.util.ImageUtil;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+/**
+ * Shade sprites tinted from a base mask the first time a colour is used, registered as sprite overrides. At most
+ * {@code capacity} colours are kept; the least recently used one is evicted and its sprite id reused. The client caches
+ * widget sprites by id, so that cache is reset whenever an id is given other pixels or removed.
+ */
+public class PohSpriteCache
+{
+	private static final int FIRST_SPRITE_ID = -73100;
+	private static final String MASK_FILE = "shade_mask.png";
+
+	private final Client client;
+	private final int[] colors;
+	private final boolean[] used;
+	private final long[] lastUsed;
+	private long clock;
+	private BufferedImage mask;
+
+	public PohSpriteCache(Client client, int capacity)
+	{
+		this.client = client;
+		this.colors = new int[capacity];
+		this.used = new boolean[capacity];
+		this.lastUsed = new long[capacity];
+	}
+
+	/**
+	 * Sprite id of the shade tinted with {@code color}, or 0 for no sprite when {@code color} is fully transparent.
+	 * Must be called on the client thread.
+	 */
+	public int getSpriteId(Color color)
+	{
+		if (color == null || color.getAlpha() == 0)
+		{
+			return 0;
+		}
+
+		int rgb = color.getRGB() & 0xffffff;
+		for (int i = 0; i < colors.length; i++)
+		{
+			if (used[i] && colors[i] == rgb)
+			{
+				lastUsed[i] = ++clock;
+				return spriteId(i);
+			}
+		}
+
+		int slot = 0;
+		for (int i = 0; i < colors.length; i++)
+		{
+			if (!used[i])
+			{
+				slot = i;
+				break;
+			}
+			if (lastUsed[i] < lastUsed[slot])
+			{
+				slot = i;
+			}
+		}
+
+		SpritePixels pixels = tint(rgb);
+		if (pixels == null)
+		{
+			return 0;
+		}
+
+		client.getSpriteOverrides().put(spriteId(slot), pixels);
+		client.getWidgetSpriteCache().reset();
+		colors[slot] = rgb;
+		used[slot] = true;
+		lastUsed[slot] = ++clock;
+		return spriteId(slot);
+	}
+
+	/**
+	 * Removes every generated sprite override. Must be called on the client thread.
+	 */
+	public void clear()
+	{
+		boolean removed = false;
+		for (int i = 0; i < colors.length; i++)
+		{
+			if (used[i])
+			{
+				client.getSpriteOverrides().remove(spriteId(i));
+				used[i] = false;
+				removed = true;
+			}
+		}
+
+		if (removed)
+		{
+			client.getWidgetSpriteCache().reset();
+		}
+	}
+
+	private SpritePixels tint(int rgb)
+	{
+		if (mask == null)
+		{
+			mask = ImageUtil.loadImageResource(getClass(), MASK_FILE);
+			if (mask == null)
+			{
+				return null;
+			}
+		}
+
+		int red = (rgb >> 16) & 0xff;
+		int green = (rgb >> 8) & 0xff;
+		int blue = rgb & 0xff;
+
+		BufferedImage tinted = new BufferedImage(mask.getWidth(), mask.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < mask.getHeight(); y++)
+		{
+			for (int x = 0; x < mask.getWidth(); x++)
+			{
+				int pixel = mask.getRGB(x, y);
+				int r = ((pixel >> 16) & 0xff) * red / 255;
+				int g = ((pixel >> 8) & 0xff) * green / 255;
+				int b = (pixel & 0xff) * blue / 255;
+				tinted.setRGB(x, y, (pixel & 0xff000000) | (r << 16) | (g << 8) | b);
+			}
+		}
+		return ImageUtil.getImageSpritePixels(tinted, client);
+	}
+
+	private static int spriteId(int slot)
+	{
+		return FIRST_SPRITE_ID - slot;
+	}
+}
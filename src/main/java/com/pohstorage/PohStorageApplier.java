@@ -0,0 +1,96 @@
+package com.pohstorage;
+
+import lombok.Getter;
+
+import java.util.BitSet;
+
+/**
+ * Applies a plan over the applied one in slices of a bounded number of widget writes, one slice per client tick, so
+ * the worst frame does not grow with the size of a unit. Widgets shown in the visible scroll window are applied
+ * first. A cancelled apply leaves the plan describing the widgets as they are, half old and half new, so it can be
+ * treated as the applied plan without a stale half sticking.
+ */
+public class PohStorageApplier
+{
+	private static final int PASS_VISIBLE = 0;
+	private static final int PASS_REST = 1;
+	private static final int PASS_DONE = 2;
+
+	private final BitSet applied = new BitSet();
+
+	@Getter
+	private PohStorageLayout plan;
+
+	private PohStorageLayout previous;
+	private int visibleTop;
+	private int visibleBottom;
+	private int pass;
+	private int cursor;
+
+	public void begin(PohStorageLayout plan, PohStorageLayout previous, int visibleTop, int visibleBottom)
+	{
+		this.plan = plan;
+		this.previous = previous;
+		this.visibleTop = visibleTop;
+		this.visibleBottom = visibleBottom;
+		applied.clear();
+		pass = PASS_VISIBLE;
+		cursor = 0;
+	}
+
+	public boolean isActive()
+	{
+		return plan != null;
+	}
+
+	/**
+	 * Applies planned widgets until {@code budget} writes were made through {@code transaction}, or all of them when
+	 * {@code budget} is 0. Returns true once the whole plan is applied.
+	 */
+	public boolean step(PohStorageTransaction transaction, PohStorageHover hover, int budget)
+	{
+		int start = transaction.getWritten();
+		for (; pass < PASS_DONE; pass++, cursor = 0)
+		{
+			for (; cursor < plan.getCapacity(); cursor++)
+			{
+				if (budget > 0 && transaction.getWritten() - start >= budget)
+				{
+					return false;
+				}
+
+				if (plan.isPlanned(cursor) && !applied.get(cursor)
+					&& (pass == PASS_REST || plan.isShownWithin(previous, cursor, visibleTop, visibleBottom)))
+				{
+					plan.apply(previous, cursor, transaction, hover);
+					applied.set(cursor);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the apply, putting back the previous entry of every widget not applied yet. Returns the plan, which now
+	 * describes the live widgets, with {@code scrollHeight} as they still have it.
+	 */
+	public PohStorageLayout cancel(int scrollHeight)
+	{
+		int capacity = Math.max(plan.getCapacity(), previous == null ? 0 : previous.getCapacity());
+		for (int i = applied.nextClearBit(0); i < capacity; i = applied.nextClearBit(i + 1))
+		{
+			plan.revert(previous, i);
+		}
+		plan.setScrollHeight(scrollHeight);
+
+		PohStorageLayout cancelled = plan;
+		clear();
+		return cancelled;
+	}
+
+	public void clear()
+	{
+		plan = null;
+		previous = null;
+	}
+}
@@ -0,0 +1,280 @@
+package com.pohstorage;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.widgets.WidgetType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Last scanned contents of one storage unit for one account, kept in a memory-mapped file so the unit can be searched
+ * without being opened.
+ *
+ * <p>The file holds a header ({@code magic, childCount, textLength, structure}), one fixed-size record per child
+ * ({@code type, hidden, width, opacity, textLength, itemId}) and the UTF-8 header texts in child order. Fixed-size
+ * records let the stored state of single items be updated in place, and the hash of everything but those states lets
+ * a rescan of an unchanged unit write only the states that changed. A file that does not hold a valid catalog is
+ * treated as missing.
+ */
+@Slf4j
+public class PohStorageCatalog
+{
+	private static final int MAGIC = 0x50534332;
+	private static final int HEADER_SIZE = 20;
+	private static final int STRUCTURE_OFFSET = 12;
+	private static final int RECORD_SIZE = 12;
+	private static final int OPACITY_OFFSET = 4;
+	private static final byte TYPE_IGNORED = -1;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final Path file;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private boolean failed;
+
+	public PohStorageCatalog(Path file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * Feeds the cached children into {@code model}, returning false when there is no valid catalog.
+	 */
+	public boolean read(PohStorageModel model)
+	{
+		if (!mapExisting())
+		{
+			return false;
+		}
+
+		try
+		{
+			int childCount = buffer.getInt(4);
+			int textEnd = HEADER_SIZE + childCount * RECORD_SIZE + buffer.getInt(8);
+			model.beginScan(childCount);
+			int text = HEADER_SIZE + childCount * RECORD_SIZE;
+			for (int i = 0; i < childCount; i++)
+			{
+				int record = HEADER_SIZE + i * RECORD_SIZE;
+				int type = buffer.get(record);
+				if (type == TYPE_IGNORED)
+				{
+					continue;
+				}
+
+				String name = null;
+				int textLength = buffer.getShort(record + 6);
+				if (textLength < 0 || text + textLength > textEnd)
+				{
+					log.warn("Ignoring storage catalog {} with a bad text length at child {}", file, i);
+					return false;
+				}
+				if (type == WidgetType.TEXT)
+				{
+					byte[] bytes = new byte[textLength];
+					ByteBuffer view = buffer.duplicate();
+					view.position(text);
+					view.get(bytes);
+					name = new String(bytes, StandardCharsets.UTF_8);
+				}
+				text += textLength;
+
+				model.setChild(i, type, buffer.getShort(record + 2), buffer.getShort(record + OPACITY_OFFSET), buffer.get(record + 1) != 0, name);
+			}
+			return true;
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Ignoring unreadable storage catalog {}", file, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Records the children of a completed scan. When only the stored states of items changed since the catalog was
+	 * written, only their records are updated, otherwise the catalog is written anew.
+	 */
+	public void save(PohStorageModel model, PohStorageSnapshot snapshot)
+	{
+		int childCount = model.getChildCount();
+		long structure = hashStructure(model, snapshot);
+		if (buffer == null)
+		{
+			mapExisting();
+		}
+		if (buffer != null && buffer.getInt(0) == MAGIC && buffer.getInt(4) == childCount && buffer.getLong(STRUCTURE_OFFSET) == structure)
+		{
+			for (int i = 0; i < childCount; i++)
+			{
+				if (!model.isChildIgnored(i))
+				{
+					updateOpacity(i, model.getChildOpacity(i));
+				}
+			}
+			return;
+		}
+
+		byte[][] texts = new byte[childCount][];
+		int textLength = 0;
+		for (int i = 0; i < childCount; i++)
+		{
+			if (!model.isChildIgnored(i) && model.getChildText(i) != null)
+			{
+				texts[i] = model.getChildText(i).getBytes(StandardCharsets.UTF_8);
+				textLength += texts[i].length;
+			}
+		}
+
+		if (!map(HEADER_SIZE + childCount * RECORD_SIZE + textLength))
+		{
+			return;
+		}
+
+		// Invalidate first, so a partially written catalog is never read
+		buffer.putInt(0, 0);
+		int text = HEADER_SIZE + childCount * RECORD_SIZE;
+		for (int i = 0; i < childCount; i++)
+		{
+			int record = HEADER_SIZE + i * RECORD_SIZE;
+			if (model.isChildIgnored(i))
+			{
+				buffer.put(record, TYPE_IGNORED);
+				continue;
+			}
+
+			int length = texts[i] == null ? 0 : texts[i].length;
+			buffer.put(record, (byte) model.getChildType(i));
+			buffer.put(record + 1, (byte) (model.isChildHidden(i) ? 1 : 0));
+			buffer.putShort(record + 2, (short) model.getChildWidth(i));
+			buffer.putShort(record + OPACITY_OFFSET, (short) model.getChildOpacity(i));
+			buffer.putShort(record + 6, (short) length);
+			buffer.putInt(record + 8, snapshot.getItemId(i));
+			for (int b = 0; b < length; b++)
+			{
+				buffer.put(text + b, texts[i][b]);
+			}
+			text += length;
+		}
+		buffer.putInt(4, childCount);
+		buffer.putInt(8, textLength);
+		buffer.putLong(STRUCTURE_OFFSET, structure);
+		buffer.putInt(0, MAGIC);
+	}
+
+	public int getItemId(int index)
+	{
+		return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + 8);
+	}
+
+	/**
+	 * Records a changed opacity, i.e. stored state, of a single item in place.
+	 */
+	public void updateOpacity(int index, int opacity)
+	{
+		int record = HEADER_SIZE + index * RECORD_SIZE;
+		if (buffer != null && buffer.getInt(0) == MAGIC && index < buffer.getInt(4) && buffer.getShort(record + OPACITY_OFFSET) != opacity)
+		{
+			buffer.putShort(record + OPACITY_OFFSET, (short) opacity);
+		}
+	}
+
+	public void close()
+	{
+		buffer = null;
+		if (channel != null)
+		{
+			try
+			{
+				channel.close();
+			}
+			catch (IOException e)
+			{
+				log.debug("Unable to close storage catalog {}", file, e);
+			}
+			channel = null;
+		}
+	}
+
+	private boolean mapExisting()
+	{
+		if (!Files.exists(file) || !map(0) || buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+		{
+			return false;
+		}
+
+		int childCount = buffer.getInt(4);
+		int textLength = buffer.getInt(8);
+		if (childCount < 0 || textLength < 0 || buffer.capacity() < HEADER_SIZE + (long) childCount * RECORD_SIZE + textLength)
+		{
+			log.warn("Ignoring storage catalog {} with a bad header", file);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Hash of everything the catalog holds but the opacities, which are updated in place.
+	 */
+	private static long hashStructure(PohStorageModel model, PohStorageSnapshot snapshot)
+	{
+		long hash = mix(FNV_OFFSET, model.getChildCount());
+		for (int i = 0; i < model.getChildCount(); i++)
+		{
+			if (model.isChildIgnored(i))
+			{
+				hash = mix(hash, TYPE_IGNORED);
+				continue;
+			}
+
+			hash = mix(hash, model.getChildType(i));
+			hash = mix(hash, model.isChildHidden(i) ? 1 : 0);
+			hash = mix(hash, model.getChildWidth(i));
+			hash = mix(hash, snapshot.getItemId(i));
+			hash = mix(hash, model.getChildText(i) == null ? 0 : model.getChildText(i).hashCode());
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, int value)
+	{
+		return (hash ^ value) * FNV_PRIME;
+	}
+
+	private boolean map(int size)
+	{
+		if (failed)
+		{
+			return false;
+		}
+
+		try
+		{
+			if (channel == null)
+			{
+				Files.createDirectories(file.getParent());
+				channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+
+			int capacity = Math.max(size, (int) channel.size());
+			if (buffer == null || buffer.capacity() < capacity)
+			{
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			}
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open storage catalog {}", file, e);
+			failed = true;
+			close();
+			return false;
+		}
+	}
+}
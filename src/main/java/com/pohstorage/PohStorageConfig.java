@@ -3,10 +3,14 @@ package com.pohstorage;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import net.runelite.api.SpriteID;
+import net.runelite.client.config.Alpha;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
+
+import java.awt.Color;
 
 @ConfigGroup("pohstorage")
 public interface PohStorageConfig extends Config
@@ -14,27 +18,24 @@ public interface PohStorageConfig extends Config
 
 	@Getter
 	@RequiredArgsConstructor
-	enum outlineColor
-	{
-		PURPLE("Purple", PohSprites.PURPLE.getSpriteId()),
-		BLUE("Blue", PohSprites.BLUE.getSpriteId()),
-		GREEN("Green", PohSprites.GREEN.getSpriteId()),
-		YELLOW("Yellow", PohSprites.YELLOW.getSpriteId()),
-		ORANGE("Orange", PohSprites.ORANGE.getSpriteId()),
-		RED("Red", PohSprites.RED.getSpriteId()),
-		NONE("None", 0);
+	enum preserveFilters
+	{
+		NEVER("Never"),
+		WITHIN_SESSION("Within Session"),
+		ACROSS_SESSIONS("Across Sessions");
 		private final String value;
-		private final int spriteId;
 	}
 
 	@Getter
 	@RequiredArgsConstructor
-	enum preserveFilters
+	enum sortOrder
 	{
-		NEVER("Never"),
-		WITHIN_SESSION("Within Session"),
-		ACROSS_SESSIONS("Across Sessions");
+		NAME("Name", PohStorageModel.SORT_BY_NAME),
+		COMPLETION("Completion", PohStorageModel.SORT_BY_COMPLETION),
+		STORED("Stored Items", PohStorageModel.SORT_BY_STORED),
+		SIZE("Set Size", PohStorageModel.SORT_BY_ITEMS);
 		private final String value;
+		private final int order;
 	}
 
 	@ConfigItem(
@@ -48,37 +49,40 @@ public interface PohStorageConfig extends Config
 		return preserveFilters.WITHIN_SESSION;
 	}
 
+	@Alpha
 	@ConfigItem(
-		keyName = "fullSetColor",
+		keyName = "fullSetShade",
 		name = "Full Set Color",
-		description = "Configures the shade color of full sets",
+		description = "Configures the shade color of full sets; a fully transparent color leaves them unshaded",
 		position = 2
 	)
-	default outlineColor fullSetColor()
+	default Color fullSetShade()
 	{
-		return outlineColor.GREEN;
+		return new Color(0x00ff00);
 	}
 
+	@Alpha
 	@ConfigItem(
-		keyName = "partialSetColor",
+		keyName = "partialSetShade",
 		name = "Partial Set Color",
-		description = "Configures the shade color of partial sets",
+		description = "Configures the shade color of partial sets; a fully transparent color leaves them unshaded",
 		position = 3
 	)
-	default outlineColor partialSetColor()
+	default Color partialSetShade()
 	{
-		return outlineColor.BLUE;
+		return new Color(0x007fff);
 	}
 
+	@Alpha
 	@ConfigItem(
-		keyName = "emptySetColor",
+		keyName = "emptySetShade",
 		name = "Empty Set Color",
-		description = "Configures the shade color of empty sets",
+		description = "Configures the shade color of empty sets; a fully transparent color leaves them unshaded",
 		position = 4
 	)
-	default outlineColor emptySetColor()
+	default Color emptySetShade()
 	{
-		return outlineColor.NONE;
+		return new Color(0, 0, 0, 0);
 	}
 
 	@ConfigItem(
@@ -96,6 +100,81 @@ public interface PohStorageConfig extends Config
 		return 230;
 	}
 
+	@ConfigItem(
+		keyName = "virtualizeLayout",
+		name = "Virtualize Layout",
+		description = "Only lays out sets near the visible part of a storage unit, bringing in the rest while scrolling. Dragging the scrollbar quickly shows empty rows until they are brought in",
+		position = 6
+	)
+	default boolean virtualizeLayout()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "viewportMargin",
+		name = "Viewport Margin",
+		description = "How far above and below the visible part of a storage unit sets are laid out in advance",
+		position = 7
+	)
+	@Range(
+		min = 0,
+		max = 600
+	)
+	@Units(Units.PIXELS)
+	default int viewportMargin()
+	{
+		return 120;
+	}
+
+	@ConfigItem(
+		keyName = "applyBudget",
+		name = "Frame Budget",
+		description = "Most widget changes made per frame, larger relayouts being spread over several frames; 0 for no limit",
+		position = 8
+	)
+	@Range(
+		min = 0,
+		max = 5000
+	)
+	default int applyBudget()
+	{
+		return 300;
+	}
+
+	@ConfigItem(
+		keyName = "showPerformanceOverlay",
+		name = "Performance Overlay",
+		description = "Shows relayout timings and widget counters; type ::pohstorage to log them or ::pohstorage reset to clear them",
+		position = 9
+	)
+	default boolean showPerformanceOverlay()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "filterQuery",
+		name = "Filter Query",
+		description = "Only shows sets matching the query, e.g. partial AND missing<=2, name:~\"graceful\" or items>=5. An invalid query is reported in the chat and the last valid one stays applied",
+		position = 10
+	)
+	default String filterQuery()
+	{
+		return "";
+	}
+
+	@ConfigItem(
+		keyName = "sortOrder",
+		name = "Sort Order",
+		description = "Orders sets by name, by the share of their items stored, by stored items or by set size, most first",
+		position = 11
+	)
+	default sortOrder sortOrder()
+	{
+		return sortOrder.NAME;
+	}
+
 	@ConfigItem(
 		keyName = "showPartialSets",
 		name = "Show Partial Sets",
@@ -0,0 +1,70 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.Widget;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The dividers added between paired sets, with the properties plans read from them captured on the client thread, so
+ * plans can be built from them on any thread.
+ */
+public class PohStorageDividers
+{
+	private int size;
+	private Widget[] widgets = new Widget[0];
+	private int[] index = new int[0];
+	private int[] x = new int[0];
+	private int[] y = new int[0];
+
+	public void capture(List<Widget> dividers)
+	{
+		if (widgets.length < dividers.size())
+		{
+			int capacity = Math.max(dividers.size(), widgets.length * 2);
+			widgets = Arrays.copyOf(widgets, capacity);
+			index = Arrays.copyOf(index, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+		}
+		else if (dividers.size() < size)
+		{
+			Arrays.fill(widgets, dividers.size(), size, null);
+		}
+
+		size = dividers.size();
+		for (int i = 0; i < size; i++)
+		{
+			Widget divider = dividers.get(i);
+			widgets[i] = divider;
+			index[i] = divider.getIndex();
+			x[i] = divider.getOriginalX();
+			y[i] = divider.getOriginalY();
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public Widget getWidget(int divider)
+	{
+		return widgets[divider];
+	}
+
+	public int getIndex(int divider)
+	{
+		return index[divider];
+	}
+
+	public int getX(int divider)
+	{
+		return x[divider];
+	}
+
+	public int getY(int divider)
+	{
+		return y[divider];
+	}
+}
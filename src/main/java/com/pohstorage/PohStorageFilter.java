@@ -0,0 +1,444 @@
+package com.pohstorage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+import static com.pohstorage.PohStorageModel.*;
+
+/**
+ * A set filter query compiled once into a postfix predicate program, so evaluating it against a set allocates nothing.
+ *
+ * <p>Queries combine terms with {@code AND}, {@code OR}, {@code NOT} and parentheses; adjacent terms are ANDed. A term
+ * is a set type ({@code empty}, {@code partial}, {@code full}), a count comparison ({@code items>=5},
+ * {@code stored=0}, {@code missing<=2}) or a name match, either exact ({@code name:"Graceful outfit"}) or by
+ * substring ({@code name:~graceful}). A {@code -} negates the term it starts and is part of a word anywhere else, as in
+ * {@code name:~rune-pouch}. Keywords and names are case-insensitive. An empty query matches every set.
+ */
+public class PohStorageFilter
+{
+	public static final PohStorageFilter ALL = compile("");
+
+	private static final int OP_TYPE = 0;
+	private static final int OP_ITEMS = 1;
+	private static final int OP_STORED = 2;
+	private static final int OP_MISSING = 3;
+	private static final int OP_NAME_EQUALS = 4;
+	private static final int OP_NAME_CONTAINS = 5;
+	private static final int OP_NOT = 6;
+	private static final int OP_AND = 7;
+	private static final int OP_OR = 8;
+
+	private static final int CMP_EQ = 0;
+	private static final int CMP_NE = 1;
+	private static final int CMP_LT = 2;
+	private static final int CMP_LE = 3;
+	private static final int CMP_GT = 4;
+	private static final int CMP_GE = 5;
+
+	private final String query;
+	private final int[] ops;
+	private final int[] comparators;
+	private final int[] operands;
+	private final String[] names;
+	private final boolean[] stack;
+
+	private PohStorageFilter(String query, Parser parser)
+	{
+		this.query = query;
+		this.ops = Arrays.copyOf(parser.ops, parser.length);
+		this.comparators = Arrays.copyOf(parser.comparators, parser.length);
+		this.operands = Arrays.copyOf(parser.operands, parser.length);
+		this.names = Arrays.copyOf(parser.names, parser.length);
+		this.stack = new boolean[parser.maxDepth];
+	}
+
+	/**
+	 * Compiles {@code query}, throwing {@link IllegalArgumentException} describing the first syntax error.
+	 */
+	public static PohStorageFilter compile(String query)
+	{
+		Parser parser = new Parser(query == null ? "" : query);
+		parser.parse();
+		return new PohStorageFilter(query, parser);
+	}
+
+	public boolean matchesAll()
+	{
+		return ops.length == 0;
+	}
+
+	/**
+	 * Evaluates every set of {@code model} into {@code matches}.
+	 */
+	public void evaluate(PohStorageModel model, BitSet matches)
+	{
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			matches.set(set, matches(model, set));
+		}
+	}
+
+	/**
+	 * Re-evaluates only the sets in {@code changed}.
+	 */
+	public void evaluate(PohStorageModel model, BitSet matches, BitSet changed)
+	{
+		for (int set = changed.nextSetBit(0); set >= 0 && set < model.getSetCount(); set = changed.nextSetBit(set + 1))
+		{
+			matches.set(set, matches(model, set));
+		}
+	}
+
+	public boolean matches(PohStorageModel model, int set)
+	{
+		int depth = 0;
+		for (int pc = 0; pc < ops.length; pc++)
+		{
+			switch (ops[pc])
+			{
+				case OP_TYPE:
+					stack[depth++] = model.getType(set) == operands[pc];
+					break;
+				case OP_ITEMS:
+					stack[depth++] = compare(model.getItemCount(set), comparators[pc], operands[pc]);
+					break;
+				case OP_STORED:
+					stack[depth++] = compare(model.getStored(set), comparators[pc], operands[pc]);
+					break;
+				case OP_MISSING:
+					stack[depth++] = compare(model.getItemCount(set) - model.getStored(set), comparators[pc], operands[pc]);
+					break;
+				case OP_NAME_EQUALS:
+					stack[depth++] = names[pc].equals(model.getSearchName(set));
+					break;
+				case OP_NAME_CONTAINS:
+					stack[depth++] = model.getSearchName(set) != null && model.getSearchName(set).contains(names[pc]);
+					break;
+				case OP_NOT:
+					stack[depth - 1] = !stack[depth - 1];
+					break;
+				case OP_AND:
+					depth--;
+					stack[depth - 1] &= stack[depth];
+					break;
+				case OP_OR:
+					depth--;
+					stack[depth - 1] |= stack[depth];
+					break;
+			}
+		}
+		return depth == 0 || stack[0];
+	}
+
+	@Override
+	public String toString()
+	{
+		return query;
+	}
+
+	private static boolean compare(int value, int comparator, int operand)
+	{
+		switch (comparator)
+		{
+			case CMP_EQ:
+				return value == operand;
+			case CMP_NE:
+				return value != operand;
+			case CMP_LT:
+				return value < operand;
+			case CMP_LE:
+				return value <= operand;
+			case CMP_GT:
+				return value > operand;
+			default:
+				return value >= operand;
+		}
+	}
+
+	/**
+	 * Recursive descent parser emitting the program in postfix order.
+	 */
+	private static class Parser
+	{
+		private final String query;
+		private int position;
+
+		private int[] ops = new int[8];
+		private int[] comparators = new int[8];
+		private int[] operands = new int[8];
+		private String[] names = new String[8];
+		private int length;
+		private int depth;
+		private int maxDepth;
+
+		Parser(String query)
+		{
+			this.query = query;
+		}
+
+		void parse()
+		{
+			skipWhitespace();
+			if (position < query.length())
+			{
+				parseOr();
+				skipWhitespace();
+				if (position < query.length())
+				{
+					throw error("Unexpected '" + query.charAt(position) + "'");
+				}
+			}
+		}
+
+		private void parseOr()
+		{
+			parseAnd();
+			while (acceptKeyword("or") || accept("||") || accept("|"))
+			{
+				parseAnd();
+				emit(OP_OR, 0, 0, null);
+			}
+		}
+
+		private void parseAnd()
+		{
+			parseUnary();
+			while (true)
+			{
+				skipWhitespace();
+				if (acceptKeyword("and") || accept("&&") || accept("&"))
+				{
+					parseUnary();
+				}
+				else if (position < query.length() && query.charAt(position) != ')' && !atKeyword("or") && query.charAt(position) != '|')
+				{
+					// Adjacent terms are implicitly ANDed
+					parseUnary();
+				}
+				else
+				{
+					return;
+				}
+				emit(OP_AND, 0, 0, null);
+			}
+		}
+
+		private void parseUnary()
+		{
+			if (acceptKeyword("not") || accept("!") || accept("-"))
+			{
+				parseUnary();
+				emit(OP_NOT, 0, 0, null);
+				return;
+			}
+
+			if (accept("("))
+			{
+				parseOr();
+				if (!accept(")"))
+				{
+					throw error("Missing ')'");
+				}
+				return;
+			}
+
+			parseTerm();
+		}
+
+		private void parseTerm()
+		{
+			skipWhitespace();
+			int start = position;
+			String word = readWord().toLowerCase(Locale.ROOT);
+			switch (word)
+			{
+				case "empty":
+					emit(OP_TYPE, 0, SET_TYPE_EMPTY, null);
+					return;
+				case "partial":
+					emit(OP_TYPE, 0, SET_TYPE_PARTIAL, null);
+					return;
+				case "full":
+					emit(OP_TYPE, 0, SET_TYPE_FULL, null);
+					return;
+				case "items":
+					emit(OP_ITEMS, readComparator(), readNumber(), null);
+					return;
+				case "stored":
+					emit(OP_STORED, readComparator(), readNumber(), null);
+					return;
+				case "missing":
+					emit(OP_MISSING, readComparator(), readNumber(), null);
+					return;
+				case "name":
+					if (!accept(":"))
+					{
+						throw error("Expected ':' after name");
+					}
+					boolean contains = accept("~");
+					String name = readString().toLowerCase(Locale.ROOT);
+					emit(contains ? OP_NAME_CONTAINS : OP_NAME_EQUALS, 0, 0, name);
+					return;
+				default:
+					position = start;
+					throw error(word.isEmpty() ? "Expected a term" : "Unknown term '" + word + "'");
+			}
+		}
+
+		private int readComparator()
+		{
+			skipWhitespace();
+			if (accept("<="))
+			{
+				return CMP_LE;
+			}
+			else if (accept(">="))
+			{
+				return CMP_GE;
+			}
+			else if (accept("!=") || accept("<>"))
+			{
+				return CMP_NE;
+			}
+			else if (accept("<"))
+			{
+				return CMP_LT;
+			}
+			else if (accept(">"))
+			{
+				return CMP_GT;
+			}
+			else if (accept("=") || accept(":"))
+			{
+				accept("=");
+				return CMP_EQ;
+			}
+			throw error("Expected a comparison");
+		}
+
+		private int readNumber()
+		{
+			skipWhitespace();
+			int start = position;
+			while (position < query.length() && Character.isDigit(query.charAt(position)))
+			{
+				position++;
+			}
+			if (start == position || position - start > 9)
+			{
+				position = start;
+				throw error("Expected a number");
+			}
+			return Integer.parseInt(query.substring(start, position));
+		}
+
+		private String readString()
+		{
+			skipWhitespace();
+			if (accept("\""))
+			{
+				int end = query.indexOf('"', position);
+				if (end < 0)
+				{
+					throw error("Missing closing '\"'");
+				}
+				String value = query.substring(position, end);
+				position = end + 1;
+				return value;
+			}
+
+			String value = readWord();
+			if (value.isEmpty())
+			{
+				throw error("Expected a name");
+			}
+			return value;
+		}
+
+		private String readWord()
+		{
+			skipWhitespace();
+			int start = position;
+			// A '-' starting a term negates it, so only one within a word is part of it
+			while (position < query.length() && (isWordChar(query.charAt(position)) || position > start && query.charAt(position) == '-'))
+			{
+				position++;
+			}
+			return query.substring(start, position);
+		}
+
+		private boolean atKeyword(String keyword)
+		{
+			int end = position + keyword.length();
+			return query.regionMatches(true, position, keyword, 0, keyword.length())
+				&& (end == query.length() || !isWordChar(query.charAt(end)) && query.charAt(end) != '-');
+		}
+
+		private static boolean isWordChar(char c)
+		{
+			return Character.isLetterOrDigit(c) || c == '\'';
+		}
+
+		private boolean acceptKeyword(String keyword)
+		{
+			skipWhitespace();
+			if (atKeyword(keyword))
+			{
+				position += keyword.length();
+				return true;
+			}
+			return false;
+		}
+
+		private boolean accept(String token)
+		{
+			skipWhitespace();
+			if (query.startsWith(token, position))
+			{
+				position += token.length();
+				return true;
+			}
+			return false;
+		}
+
+		private void skipWhitespace()
+		{
+			while (position < query.length() && Character.isWhitespace(query.charAt(position)))
+			{
+				position++;
+			}
+		}
+
+		private void emit(int op, int comparator, int operand, String name)
+		{
+			if (length == ops.length)
+			{
+				ops = Arrays.copyOf(ops, length * 2);
+				comparators = Arrays.copyOf(comparators, length * 2);
+				operands = Arrays.copyOf(operands, length * 2);
+				names = Arrays.copyOf(names, length * 2);
+			}
+			ops[length] = op;
+			comparators[length] = comparator;
+			operands[length] = operand;
+			names[length] = name;
+			length++;
+
+			if (op == OP_AND || op == OP_OR)
+			{
+				depth--;
+			}
+			else if (op != OP_NOT)
+			{
+				depth++;
+				maxDepth = Math.max(maxDepth, depth);
+			}
+		}
+
+		private IllegalArgumentException error(String message)
+		{
+			return new IllegalArgumentException(message + " at position " + (position + 1) + " of filter query \"" + query + "\"");
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.pohstorage;
+
+import net.runelite.api.ScriptEvent;
+import net.runelite.api.widgets.JavaScriptCallback;
+import net.runelite.api.widgets.Widget;
+
+import java.util.Arrays;
+
+/**
+ * Hover highlighting of the set outlines of one session. A single pair of listeners is shared by every outline and
+ * installed once per widget, and opacity is only written when the hovered outline changes.
+ */
+public class PohStorageHover
+{
+	static final int NO_HOVER = -1;
+
+	private final JavaScriptCallback enterListener = this::enter;
+	private final JavaScriptCallback leaveListener = this::leave;
+
+	// Indexed by child index
+	private Widget[] installed = new Widget[0];
+	private int[] normalOpacity = new int[0];
+	private int[] hoverOpacity = new int[0];
+
+	private Widget hovered;
+
+	/**
+	 * Sets the opacities {@code widget} shows when not hovered and hovered, installing the shared listeners on it the
+	 * first time it is given a hover opacity other than {@link #NO_HOVER}.
+	 */
+	public void register(Widget widget, int normal, int hover)
+	{
+		int index = widget.getIndex();
+		if (index >= installed.length || installed[index] != widget)
+		{
+			if (hover == NO_HOVER)
+			{
+				return;
+			}
+
+			ensureCapacity(index + 1);
+			installed[index] = widget;
+			widget.setOnMouseOverListener(enterListener);
+			widget.setOnMouseLeaveListener(leaveListener);
+		}
+
+		normalOpacity[index] = normal;
+		hoverOpacity[index] = hover;
+	}
+
+	/**
+	 * The opacity {@code widget} should currently show, given its planned opacities.
+	 */
+	public int getOpacity(Widget widget, int normal, int hover)
+	{
+		return widget == hovered && hover != NO_HOVER ? hover : normal;
+	}
+
+	/**
+	 * Removes the listeners from every widget they were installed on.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < installed.length; i++)
+		{
+			if (installed[i] != null)
+			{
+				installed[i].setOnMouseOverListener((Object[]) null);
+				installed[i].setOnMouseLeaveListener((Object[]) null);
+				installed[i] = null;
+			}
+		}
+		hovered = null;
+	}
+
+	private void enter(ScriptEvent event)
+	{
+		Widget source = event.getSource();
+		int index = source.getIndex();
+		if (source != hovered && index < installed.length && installed[index] == source && hoverOpacity[index] != NO_HOVER)
+		{
+			hovered = source;
+			source.setOpacity(hoverOpacity[index]);
+		}
+	}
+
+	private void leave(ScriptEvent event)
+	{
+		Widget source = event.getSource();
+		if (source == hovered)
+		{
+			hovered = null;
+			source.setOpacity(normalOpacity[source.getIndex()]);
+		}
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity <= installed.length)
+		{
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, installed.length * 2);
+		installed = Arrays.copyOf(installed, newCapacity);
+		normalOpacity = Arrays.copyOf(normalOpacity, newCapacity);
+		hoverOpacity = Arrays.copyOf(hoverOpacity, newCapacity);
+	}
+}
@@ -0,0 +1,561 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetPositionMode;
+import net.runelite.api.widgets.WidgetSizeMode;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.pohstorage.PohStorageModel.*;
+
+public class PohStorageLayout
+{
+	private static final int NO_HOVER = PohStorageHover.NO_HOVER;
+	// White outline around the icons of missing items held in the bank
+	private static final int BANKED_BORDER = 2;
+
+	private Widget[] widgets;
+	private int[] x;
+	private int[] y;
+	private int[] width;
+	private int[] widthMode;
+	private int[] xPositionMode;
+	private int[] spriteId;
+	private int[] opacity;
+	private int[] hoverOpacity;
+	private int[] borderType;
+	private boolean[] hidden;
+	private boolean[] positionOnly;
+	private boolean[] parked;
+
+	@Getter
+	@Setter
+	private int scrollHeight;
+
+	public PohStorageLayout(int capacity)
+	{
+		widgets = new Widget[capacity];
+		x = new int[capacity];
+		y = new int[capacity];
+		width = new int[capacity];
+		widthMode = new int[capacity];
+		xPositionMode = new int[capacity];
+		spriteId = new int[capacity];
+		opacity = new int[capacity];
+		hoverOpacity = new int[capacity];
+		borderType = new int[capacity];
+		hidden = new boolean[capacity];
+		positionOnly = new boolean[capacity];
+		parked = new boolean[capacity];
+	}
+
+	public void clear()
+	{
+		Arrays.fill(widgets, null);
+		scrollHeight = 0;
+	}
+
+	/**
+	 * Plans the filtered, sorted and paired view described by {@code model}. {@code dividers} must hold at least
+	 * {@link PohStorageModel#getDividerCount()} dividers; any beyond that are hidden. Reads no widgets.
+	 */
+	public void build(PohStorageModel model, List<PohStorageSet> storageSets, PohStorageSnapshot snapshot, PohStorageDividers dividers, int[] setSprites, int normalOpacity, int containerHeight)
+	{
+		int hoverOpacity = getHoverOpacity(normalOpacity);
+		int dividerCount = 0;
+
+		clear();
+
+		for (int set = 0; set < storageSets.size(); set++)
+		{
+			PohStorageSet storageSet = storageSets.get(set);
+			for (int widget = 0; widget < storageSet.getWidgetCount(); widget++)
+			{
+				int index = storageSet.getWidget(widget);
+				put(snapshot, index);
+
+				// Hide unwanted widgets
+				if (!model.isVisible(set))
+				{
+					hidden[index] = true;
+				}
+			}
+		}
+
+		for (int i = 0; i < model.getJunkCount(); i++)
+		{
+			put(snapshot, model.getJunk(i));
+			x[model.getJunk(i)] = -100;
+		}
+
+		// Adjust others
+		for (int position = 0; position < model.getVisibleCount(); position++)
+		{
+			PohStorageSet storageSet = storageSets.get(model.getVisibleSet(position));
+			int column = model.getColumn(position);
+			int top = model.getTop(position);
+
+			if (column == COLUMN_RIGHT)
+			{
+
+				// Right Half
+				setWidth(storageSet.getOutline(), WIDGET_SET_WIDTH, WidgetSizeMode.MINUS, WidgetPositionMode.ABSOLUTE_RIGHT);
+
+				setWidth(storageSet.getHeader(), WIDGET_SET_WIDTH - WIDGET_OFFSET, WidgetSizeMode.ABSOLUTE, WidgetPositionMode.ABSOLUTE_LEFT);
+				setX(storageSet.getHeader(), WIDGET_SET_WIDTH + WIDGET_OFFSET);
+
+				setWidth(storageSet.getFooter(), WIDGET_SET_WIDTH, WidgetSizeMode.MINUS, WidgetPositionMode.ABSOLUTE_RIGHT);
+
+				setX(storageSet.getArrow(), WIDGET_OFFSET);
+
+				putDivider(dividers, dividerCount++, WIDGET_SET_WIDTH - WIDGET_DIVIDER_WIDTH, top, false);
+
+			}
+			else if (column == COLUMN_LEFT)
+			{
+
+				// Left Half
+				setWidth(storageSet.getOutline(), WIDGET_SET_WIDTH, WidgetSizeMode.ABSOLUTE, WidgetPositionMode.ABSOLUTE_LEFT);
+
+				setWidth(storageSet.getHeader(), WIDGET_SET_WIDTH - WIDGET_OFFSET, WidgetSizeMode.ABSOLUTE, WidgetPositionMode.ABSOLUTE_LEFT);
+				setX(storageSet.getHeader(), WIDGET_OFFSET);
+
+				setWidth(storageSet.getFooter(), WIDGET_SET_WIDTH, WidgetSizeMode.ABSOLUTE, WidgetPositionMode.ABSOLUTE_LEFT);
+
+				setX(storageSet.getArrow(), WIDGET_SET_WIDTH + 2 * WIDGET_OFFSET);
+
+			}
+			else
+			{
+
+				// Full Width
+				setWidth(storageSet.getOutline(), 0, WidgetSizeMode.MINUS, WidgetPositionMode.ABSOLUTE_CENTER);
+
+				setWidth(storageSet.getHeader(), WIDGET_OFFSET, WidgetSizeMode.MINUS, WidgetPositionMode.ABSOLUTE_RIGHT);
+				setX(storageSet.getHeader(), 0);
+
+				setWidth(storageSet.getFooter(), 0, WidgetSizeMode.MINUS, WidgetPositionMode.ABSOLUTE_CENTER);
+
+				setX(storageSet.getArrow(), WIDGET_OFFSET);
+
+			}
+
+			for (int item = 0; item < storageSet.getItemCount(); item++)
+			{
+				int child = storageSet.getItem(item);
+				setX(child, getItemX(column, item));
+				setY(child, top + WIDGET_ICON_TOP_OFFSET);
+				if (model.isBanked(child))
+				{
+					borderType[child] = BANKED_BORDER;
+				}
+			}
+
+			setY(storageSet.getOutline(), top);
+
+			int sprite = setSprites[storageSet.getType()];
+			if (sprite != 0)
+			{
+				setSprite(storageSet.getOutline(), sprite, normalOpacity, storageSet.getType() == SET_TYPE_EMPTY ? NO_HOVER : hoverOpacity);
+			}
+
+			setY(storageSet.getHeader(), top);
+			setY(storageSet.getArrow(), top + 5);
+			setY(storageSet.getFooter(), top + 40);
+		}
+
+		for (int i = dividerCount; i < dividers.size(); i++)
+		{
+			putDivider(dividers, i, dividers.getX(i), dividers.getY(i), true);
+		}
+
+		scrollHeight = model.getScrollHeight(containerHeight);
+	}
+
+	/**
+	 * Plans the view of {@code source} with the shown sets entirely outside {@code windowTop} to {@code windowBottom}
+	 * parked, together with their dividers: hidden, with their other properties left as they are. Reads no widgets.
+	 */
+	public void window(PohStorageLayout source, List<PohStorageSet> storageSets, PohStorageSnapshot snapshot, PohStorageDividers dividers, int windowTop, int windowBottom)
+	{
+		copy(source);
+
+		for (int set = 0; set < storageSets.size(); set++)
+		{
+			PohStorageSet storageSet = storageSets.get(set);
+			int outline = storageSet.getOutline();
+			if (hidden[outline] || isWithin(outline, windowTop, windowBottom))
+			{
+				continue;
+			}
+
+			for (int widget = 0; widget < storageSet.getWidgetCount(); widget++)
+			{
+				int index = storageSet.getWidget(widget);
+				put(snapshot, index);
+				park(index);
+			}
+		}
+
+		for (int divider = 0; divider < dividers.size(); divider++)
+		{
+			int index = dividers.getIndex(divider);
+			if (index < widgets.length && widgets[index] != null && !hidden[index] && !isWithin(index, windowTop, windowBottom))
+			{
+				putDivider(dividers, divider, dividers.getX(divider), dividers.getY(divider), true);
+				park(index);
+			}
+		}
+	}
+
+	/**
+	 * Plans the view of {@code source} again with the set shades of {@code setSprites} at {@code normalOpacity}, for an
+	 * appearance change that moves no widget. Reads no widgets.
+	 */
+	public void repaint(PohStorageLayout source, List<PohStorageSet> storageSets, PohStorageSnapshot snapshot, int[] setSprites, int normalOpacity)
+	{
+		int hoverOpacity = getHoverOpacity(normalOpacity);
+		copy(source);
+
+		for (int set = 0; set < storageSets.size(); set++)
+		{
+			// Hidden outlines are painted when next laid out
+			PohStorageSet storageSet = storageSets.get(set);
+			int outline = storageSet.getOutline();
+			if (outline >= widgets.length || widgets[outline] == null || hidden[outline])
+			{
+				continue;
+			}
+
+			int sprite = setSprites[storageSet.getType()];
+			if (sprite != 0)
+			{
+				setSprite(outline, sprite, normalOpacity, storageSet.getType() == SET_TYPE_EMPTY ? NO_HOVER : hoverOpacity);
+			}
+			else
+			{
+				setSprite(outline, snapshot.getSpriteId(outline), snapshot.getOpacity(outline));
+			}
+		}
+	}
+
+	/**
+	 * Plans every scanned widget back to its original properties and hides the added dividers.
+	 */
+	public void buildOriginal(PohStorageModel model, List<PohStorageSet> storageSets, PohStorageSnapshot snapshot, PohStorageDividers dividers, int originalScroll)
+	{
+		clear();
+
+		for (int set = 0; set < storageSets.size(); set++)
+		{
+			PohStorageSet storageSet = storageSets.get(set);
+			for (int widget = 0; widget < storageSet.getWidgetCount(); widget++)
+			{
+				put(snapshot, storageSet.getWidget(widget));
+			}
+		}
+
+		for (int i = 0; i < model.getJunkCount(); i++)
+		{
+			put(snapshot, model.getJunk(i));
+		}
+
+		for (int i = 0; i < dividers.size(); i++)
+		{
+			putDivider(dividers, i, dividers.getX(i), dividers.getY(i), true);
+		}
+
+		scrollHeight = originalScroll;
+	}
+
+	public void put(PohStorageSnapshot snapshot, int index)
+	{
+		ensureCapacity(index + 1);
+		widgets[index] = snapshot.getWidget(index);
+		x[index] = snapshot.getX(index);
+		y[index] = snapshot.getY(index);
+		width[index] = snapshot.getWidth(index);
+		widthMode[index] = snapshot.getWidthMode(index);
+		xPositionMode[index] = snapshot.getXPositionMode(index);
+		spriteId[index] = snapshot.getSpriteId(index);
+		opacity[index] = snapshot.getOpacity(index);
+		hoverOpacity[index] = NO_HOVER;
+		borderType[index] = snapshot.getBorderType(index);
+		hidden[index] = snapshot.isHidden(index);
+		positionOnly[index] = snapshot.isIcon(index);
+		parked[index] = false;
+	}
+
+	public void putDivider(PohStorageDividers dividers, int divider, int dividerX, int dividerY, boolean dividerHidden)
+	{
+		int index = dividers.getIndex(divider);
+		ensureCapacity(index + 1);
+		widgets[index] = dividers.getWidget(divider);
+		x[index] = dividerX;
+		y[index] = dividerY;
+		hoverOpacity[index] = NO_HOVER;
+		borderType[index] = 0;
+		hidden[index] = dividerHidden;
+		positionOnly[index] = true;
+		parked[index] = false;
+	}
+
+	/**
+	 * Hides a planned widget without repositioning it. When applied, it keeps whatever the previous plan gave it.
+	 */
+	public void park(int index)
+	{
+		hidden[index] = true;
+		parked[index] = true;
+	}
+
+	public void setX(int index, int newX)
+	{
+		x[index] = newX;
+	}
+
+	public void setY(int index, int newY)
+	{
+		y[index] = newY;
+	}
+
+	public void setHidden(int index, boolean newHidden)
+	{
+		hidden[index] = newHidden;
+	}
+
+	public void setWidth(int index, int newWidth, int newWidthMode, int newXPositionMode)
+	{
+		width[index] = newWidth;
+		widthMode[index] = newWidthMode;
+		xPositionMode[index] = newXPositionMode;
+	}
+
+	public void setSprite(int index, int newSpriteId, int newOpacity)
+	{
+		setSprite(index, newSpriteId, newOpacity, NO_HOVER);
+	}
+
+	public void setSprite(int index, int newSpriteId, int newOpacity, int newHoverOpacity)
+	{
+		spriteId[index] = newSpriteId;
+		opacity[index] = newOpacity;
+		hoverOpacity[index] = newHoverOpacity;
+	}
+
+	public boolean matches(int index, Widget widget)
+	{
+		return index < widgets.length && widgets[index] == widget
+			&& widget.getOriginalX() == x[index]
+			&& widget.getOriginalY() == y[index]
+			&& widget.isHidden() == hidden[index]
+			&& widget.getBorderType() == borderType[index];
+	}
+
+	public void forget(int index)
+	{
+		if (index < widgets.length)
+		{
+			widgets[index] = null;
+		}
+	}
+
+	/**
+	 * Writes every property that differs from {@code previous} through {@code transaction}. Widgets that
+	 * {@code previous} does not know about have every property passed on, for the transaction to compare with the
+	 * live widget. Hover opacities are handed to {@code hover}.
+	 */
+	public void apply(PohStorageLayout previous, PohStorageTransaction transaction, PohStorageHover hover)
+	{
+		for (int i = 0; i < widgets.length; i++)
+		{
+			if (widgets[i] != null)
+			{
+				apply(previous, i, transaction, hover);
+			}
+		}
+	}
+
+	/**
+	 * Applies the planned widget at {@code index} alone, as {@link #apply(PohStorageLayout, PohStorageTransaction, PohStorageHover)}
+	 * does for every widget.
+	 */
+	public void apply(PohStorageLayout previous, int index, PohStorageTransaction transaction, PohStorageHover hover)
+	{
+		Widget widget = widgets[index];
+		boolean known = previous != null && index < previous.widgets.length && previous.widgets[index] == widget;
+
+		if (parked[index])
+		{
+			if (known)
+			{
+				inherit(previous, index);
+			}
+			if (!known || !previous.hidden[index])
+			{
+				transaction.setHidden(widget, true);
+			}
+			return;
+		}
+
+		if (!known || previous.x[index] != x[index])
+		{
+			transaction.setOriginalX(widget, x[index]);
+		}
+		if (!known || previous.y[index] != y[index])
+		{
+			transaction.setOriginalY(widget, y[index]);
+		}
+		if (!known || previous.hidden[index] != hidden[index])
+		{
+			transaction.setHidden(widget, hidden[index]);
+		}
+		if (!known || previous.borderType[index] != borderType[index])
+		{
+			transaction.setBorderType(widget, borderType[index]);
+		}
+
+		if (!positionOnly[index])
+		{
+			if (!known || previous.width[index] != width[index])
+			{
+				transaction.setOriginalWidth(widget, width[index]);
+			}
+			if (!known || previous.widthMode[index] != widthMode[index])
+			{
+				transaction.setWidthMode(widget, widthMode[index]);
+			}
+			if (!known || previous.xPositionMode[index] != xPositionMode[index])
+			{
+				transaction.setXPositionMode(widget, xPositionMode[index]);
+			}
+			if (!known || previous.spriteId[index] != spriteId[index])
+			{
+				transaction.setSpriteId(widget, spriteId[index]);
+			}
+			if (!known || previous.opacity[index] != opacity[index] || previous.hoverOpacity[index] != hoverOpacity[index])
+			{
+				hover.register(widget, opacity[index], hoverOpacity[index]);
+				transaction.setOpacity(widget, hover.getOpacity(widget, opacity[index], hoverOpacity[index]));
+			}
+		}
+	}
+
+	public int getCapacity()
+	{
+		return widgets.length;
+	}
+
+	public boolean isPlanned(int index)
+	{
+		return widgets[index] != null;
+	}
+
+	/**
+	 * Whether the planned widget at {@code index} is shown with its top between {@code top} and {@code bottom}, either
+	 * by this plan or as it stands before this plan is applied over {@code previous}.
+	 */
+	public boolean isShownWithin(PohStorageLayout previous, int index, int top, int bottom)
+	{
+		if (!parked[index] && !hidden[index] && y[index] >= top && y[index] <= bottom)
+		{
+			return true;
+		}
+
+		Widget widget = widgets[index];
+		if (previous != null && index < previous.widgets.length && previous.widgets[index] == widget)
+		{
+			return !previous.hidden[index] && previous.y[index] >= top && previous.y[index] <= bottom;
+		}
+		return !widget.isSelfHidden() && widget.getOriginalY() >= top && widget.getOriginalY() <= bottom;
+	}
+
+	/**
+	 * Puts back the entry {@code previous} has at {@code index}, for a widget this plan was never applied to.
+	 */
+	public void revert(PohStorageLayout previous, int index)
+	{
+		if (previous == null || index >= previous.widgets.length || previous.widgets[index] == null)
+		{
+			forget(index);
+			return;
+		}
+
+		ensureCapacity(index + 1);
+		widgets[index] = previous.widgets[index];
+		inherit(previous, index);
+		hidden[index] = previous.hidden[index];
+		parked[index] = previous.parked[index];
+	}
+
+	private void copy(PohStorageLayout source)
+	{
+		int length = source.widgets.length;
+		ensureCapacity(length);
+		clear();
+		System.arraycopy(source.widgets, 0, widgets, 0, length);
+		System.arraycopy(source.x, 0, x, 0, length);
+		System.arraycopy(source.y, 0, y, 0, length);
+		System.arraycopy(source.width, 0, width, 0, length);
+		System.arraycopy(source.widthMode, 0, widthMode, 0, length);
+		System.arraycopy(source.xPositionMode, 0, xPositionMode, 0, length);
+		System.arraycopy(source.spriteId, 0, spriteId, 0, length);
+		System.arraycopy(source.opacity, 0, opacity, 0, length);
+		System.arraycopy(source.hoverOpacity, 0, hoverOpacity, 0, length);
+		System.arraycopy(source.borderType, 0, borderType, 0, length);
+		System.arraycopy(source.hidden, 0, hidden, 0, length);
+		System.arraycopy(source.positionOnly, 0, positionOnly, 0, length);
+		System.arraycopy(source.parked, 0, parked, 0, length);
+		scrollHeight = source.scrollHeight;
+	}
+
+	private boolean isWithin(int index, int windowTop, int windowBottom)
+	{
+		return y[index] + WIDGET_SET_HEIGHT > windowTop && y[index] < windowBottom;
+	}
+
+	private static int getHoverOpacity(int normalOpacity)
+	{
+		return (normalOpacity > 20) ? normalOpacity - 20 : 0;
+	}
+
+	private void inherit(PohStorageLayout previous, int index)
+	{
+		x[index] = previous.x[index];
+		y[index] = previous.y[index];
+		width[index] = previous.width[index];
+		widthMode[index] = previous.widthMode[index];
+		xPositionMode[index] = previous.xPositionMode[index];
+		spriteId[index] = previous.spriteId[index];
+		opacity[index] = previous.opacity[index];
+		hoverOpacity[index] = previous.hoverOpacity[index];
+		borderType[index] = previous.borderType[index];
+		positionOnly[index] = previous.positionOnly[index];
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity <= widgets.length)
+		{
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, widgets.length * 2);
+		widgets = Arrays.copyOf(widgets, newCapacity);
+		x = Arrays.copyOf(x, newCapacity);
+		y = Arrays.copyOf(y, newCapacity);
+		width = Arrays.copyOf(width, newCapacity);
+		widthMode = Arrays.copyOf(widthMode, newCapacity);
+		xPositionMode = Arrays.copyOf(xPositionMode, newCapacity);
+		spriteId = Arrays.copyOf(spriteId, newCapacity);
+		opacity = Arrays.copyOf(opacity, newCapacity);
+		hoverOpacity = Arrays.copyOf(hoverOpacity, newCapacity);
+		borderType = Arrays.copyOf(borderType, newCapacity);
+		hidden = Arrays.copyOf(hidden, newCapacity);
+		positionOnly = Arrays.copyOf(positionOnly, newCapacity);
+		parked = Arrays.copyOf(parked, newCapacity);
+	}
+}
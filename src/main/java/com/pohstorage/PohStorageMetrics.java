@@ -0,0 +1,309 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * Latency histograms for each relayout phase, widget counters for each relayout and hit counters for each pipeline
+ * stage. Recording allocates nothing;
+ * latencies are bucketed with four sub-buckets per power of two, so percentiles are accurate to within 25%.
+ * Only the client thread records and reads the metrics; the layout thread measures into a {@link Batch} instead.
+ */
+public class PohStorageMetrics
+{
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+	@Getter
+	@RequiredArgsConstructor
+	public enum Phase
+	{
+		RESET("Reset"),
+		SCAN("Scan"),
+		CLASSIFY("Classify"),
+		FILTER("Filter"),
+		SORT("Sort"),
+		LAYOUT("Layout"),
+		REPAINT("Repaint"),
+		WINDOW("Window"),
+		APPLY("Apply"),
+		REVALIDATE("Revalidate"),
+		SCROLLBAR("Scrollbar");
+
+		private final String name;
+	}
+
+	@Getter
+	@RequiredArgsConstructor
+	public enum Counter
+	{
+		WRITES("Writes"),
+		SKIPPED("Skipped"),
+		REVALIDATIONS("Revalidations"),
+		CREATED("Created"),
+		PLAN_HITS("Plan hits"),
+		PLAN_MISSES("Plan misses"),
+		PREDICTED("Predicted"),
+		MISPREDICTED("Mispredicted");
+
+		private final String name;
+	}
+
+	private final long[][] histograms = new long[Phase.values().length][BUCKETS];
+	private final long[] samples = new long[Phase.values().length];
+	private final long[] max = new long[Phase.values().length];
+	private final long[] pending = new long[Counter.values().length];
+	private final long[] last = new long[Counter.values().length];
+	private final long[] maxPerEvent = new long[Counter.values().length];
+	private final long[] total = new long[Counter.values().length];
+	private final long[] stageHits = new long[PohStoragePipeline.Stage.values().length];
+	private final long[] stageRecomputes = new long[PohStoragePipeline.Stage.values().length];
+
+	@Getter
+	private int events;
+
+	public long start()
+	{
+		return System.nanoTime();
+	}
+
+	public void record(Phase phase, long start)
+	{
+		record(phase.ordinal(), Math.max(0, System.nanoTime() - start));
+	}
+
+	public void count(Counter counter, int amount)
+	{
+		pending[counter.ordinal()] += amount;
+	}
+
+	/**
+	 * Records the measurements of {@code batch} into the current event and empties it.
+	 */
+	public void add(Batch batch)
+	{
+		for (int i = 0; i < batch.nanos.length; i++)
+		{
+			if (batch.nanos[i] >= 0)
+			{
+				record(i, batch.nanos[i]);
+			}
+		}
+		for (int i = 0; i < pending.length; i++)
+		{
+			pending[i] += batch.counts[i];
+		}
+		for (int i = 0; i < stageHits.length; i++)
+		{
+			stageHits[i] += batch.stageHits[i];
+			stageRecomputes[i] += batch.stageRecomputes[i];
+		}
+		batch.clear();
+	}
+
+	/**
+	 * Closes the counters of the current event, i.e. one relayout, reset or open.
+	 */
+	public void endEvent()
+	{
+		for (int i = 0; i < pending.length; i++)
+		{
+			last[i] = pending[i];
+			maxPerEvent[i] = Math.max(maxPerEvent[i], pending[i]);
+			total[i] += pending[i];
+			pending[i] = 0;
+		}
+		events++;
+	}
+
+	public long getSamples(Phase phase)
+	{
+		return samples[phase.ordinal()];
+	}
+
+	public long getMax(Phase phase)
+	{
+		return max[phase.ordinal()];
+	}
+
+	/**
+	 * Upper bound of the bucket holding the {@code percentile} (0 to 100) latency of {@code phase}, in nanoseconds.
+	 */
+	public long getPercentile(Phase phase, double percentile)
+	{
+		long[] histogram = histograms[phase.ordinal()];
+		long count = samples[phase.ordinal()];
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+		{
+			seen += histogram[bucket];
+			if (seen >= rank)
+			{
+				return Math.min(upperBound(bucket), max[phase.ordinal()]);
+			}
+		}
+		return max[phase.ordinal()];
+	}
+
+	public long getLast(Counter counter)
+	{
+		return last[counter.ordinal()];
+	}
+
+	public long getMaxPerEvent(Counter counter)
+	{
+		return maxPerEvent[counter.ordinal()];
+	}
+
+	public long getTotal(Counter counter)
+	{
+		return total[counter.ordinal()];
+	}
+
+	public long getHits(PohStoragePipeline.Stage stage)
+	{
+		return stageHits[stage.ordinal()];
+	}
+
+	public long getRecomputes(PohStoragePipeline.Stage stage)
+	{
+		return stageRecomputes[stage.ordinal()];
+	}
+
+	public void reset()
+	{
+		for (long[] histogram : histograms)
+		{
+			Arrays.fill(histogram, 0);
+		}
+		Arrays.fill(samples, 0);
+		Arrays.fill(max, 0);
+		Arrays.fill(pending, 0);
+		Arrays.fill(last, 0);
+		Arrays.fill(maxPerEvent, 0);
+		Arrays.fill(total, 0);
+		Arrays.fill(stageHits, 0);
+		Arrays.fill(stageRecomputes, 0);
+		events = 0;
+	}
+
+	/**
+	 * Multi-line summary of every phase and counter, for logging.
+	 */
+	public String dump()
+	{
+		StringBuilder builder = new StringBuilder("POH Storage metrics over ").append(events).append(" events");
+		for (Phase phase : Phase.values())
+		{
+			builder.append(String.format("%n  %-10s n=%d p50=%s p99=%s max=%s ms", phase.getName(), getSamples(phase),
+				formatMillis(getPercentile(phase, 50)), formatMillis(getPercentile(phase, 99)), formatMillis(getMax(phase))));
+		}
+		for (Counter counter : Counter.values())
+		{
+			builder.append(String.format("%n  %-13s last=%d max=%d total=%d", counter.getName(), getLast(counter), getMaxPerEvent(counter), getTotal(counter)));
+		}
+		for (PohStoragePipeline.Stage stage : PohStoragePipeline.Stage.values())
+		{
+			builder.append(String.format("%n  %-8s stage hits=%d recomputes=%d", stage.getName(), getHits(stage), getRecomputes(stage)));
+		}
+		return builder.toString();
+	}
+
+	private void record(int phase, long nanos)
+	{
+		histograms[phase][bucket(nanos)]++;
+		samples[phase]++;
+		max[phase] = Math.max(max[phase], nanos);
+	}
+
+	public static String formatMillis(long nanos)
+	{
+		return String.format("%.2f", nanos / 1_000_000.0);
+	}
+
+	private static int bucket(long nanos)
+	{
+		if (nanos < SUB_BUCKETS)
+		{
+			return (int) nanos;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBound(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = bucket % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * Measurements taken by the thread computing a relayout, held until the client thread records them with
+	 * {@link #add(Batch)}. A phase timed more than once counts as a single sample of its total time.
+	 */
+	public static class Batch
+	{
+		private final long[] nanos = new long[Phase.values().length];
+		private final long[] counts = new long[Counter.values().length];
+		private final long[] stageHits = new long[PohStoragePipeline.Stage.values().length];
+		private final long[] stageRecomputes = new long[PohStoragePipeline.Stage.values().length];
+
+		public Batch()
+		{
+			clear();
+		}
+
+		public long start()
+		{
+			return System.nanoTime();
+		}
+
+		public void record(Phase phase, long start)
+		{
+			nanos[phase.ordinal()] = Math.max(0, nanos[phase.ordinal()]) + Math.max(0, System.nanoTime() - start);
+		}
+
+		public void count(Counter counter, int amount)
+		{
+			counts[counter.ordinal()] += amount;
+		}
+
+		public void countStage(PohStoragePipeline.Stage stage, boolean recomputed)
+		{
+			if (recomputed)
+			{
+				stageRecomputes[stage.ordinal()]++;
+			}
+			else
+			{
+				stageHits[stage.ordinal()]++;
+			}
+		}
+
+		private void clear()
+		{
+			// Phases not timed are -1, as a phase may take less than a nanosecond to the clock
+			Arrays.fill(nanos, -1);
+			Arrays.fill(counts, 0);
+			Arrays.fill(stageHits, 0);
+			Arrays.fill(stageRecomputes, 0);
+		}
+	}
+}
@@ -0,0 +1,738 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.WidgetType;
+import net.runelite.client.util.Text;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Objects;
+
+public class PohStorageModel
+{
+	static final int WIDGET_DIVIDER_WIDTH = 16;
+	static final int WIDGET_ICON_WIDTH = 36;
+	static final int WIDGET_ICON_TOP_OFFSET = 20;
+	static final int WIDGET_SET_WIDTH = 210;
+	static final int WIDGET_SET_HEIGHT = 60;
+	static final int WIDGET_OFFSET = 3;
+	static final int MAX_HALF_SET = 4;
+	static final int SET_FRAME_WIDGETS = 3;
+
+	static final int SET_TYPE_EMPTY = 0;
+	static final int SET_TYPE_PARTIAL = 1;
+	static final int SET_TYPE_FULL = 2;
+
+	static final int COLUMN_FULL = 0;
+	static final int COLUMN_LEFT = 1;
+	static final int COLUMN_RIGHT = 2;
+
+	static final int SORT_BY_NAME = 0;
+	static final int SORT_BY_COMPLETION = 1;
+	static final int SORT_BY_STORED = 2;
+	static final int SORT_BY_ITEMS = 3;
+
+	private static final int NO_SET = -1;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// Scan input, indexed by child index
+	private int childCount;
+	private int[] childType = new int[0];
+	private int[] childWidth = new int[0];
+	private int[] childOpacity = new int[0];
+	private boolean[] childHidden = new boolean[0];
+	private boolean[] childIgnored = new boolean[0];
+	private String[] childText = new String[0];
+	// Missing items held in the bank, set by classification rather than read from the widgets
+	private boolean[] childBanked = new boolean[0];
+
+	// Scan output, indexed by set
+	private int setCount;
+	private int[] header = new int[0];
+	private int[] itemStart = new int[0];
+	private int[] itemEnd = new int[0];
+	private int[] itemCount = new int[0];
+	private int[] stored = new int[0];
+	private int[] type = new int[0];
+	private boolean[] collapsible = new boolean[0];
+	private String[] searchName = new String[0];
+	// The header text each search name was made from, so a rescan finding the same text keeps the name
+	private String[] searchText = new String[0];
+	private int[] nameRank = new int[0];
+	private int junkCount;
+	private int[] junk = new int[0];
+	private String scanError;
+	private int collapsibleCount;
+
+	// Child indexes of the visible items of every set, in set order
+	private int itemTotal;
+	private int[] itemChildren = new int[0];
+
+	// Every set in sort order, maintained across classifications
+	private final Collator collator = Collator.getInstance(Locale.ENGLISH);
+	private int sortOrder = SORT_BY_NAME;
+	private boolean sorted;
+	private int[] sortedSets = new int[0];
+	private int[] sortBuffer = new int[0];
+	private final BitSet resortSets = new BitSet();
+
+	// Sort keys of the previous scan, so a rescan finding the same sets keeps their name ranks and order
+	private int previousSetCount;
+	private String[] previousName = new String[0];
+	private int[] previousItemCount = new int[0];
+	private int[] previousStored = new int[0];
+
+	// View, indexed by position in the sorted visible order
+	private int visibleCount;
+	private int[] order = new int[0];
+	private boolean[] visible = new boolean[0];
+	private int[] top = new int[0];
+	private int[] column = new int[0];
+	private int rows;
+	private int dividerCount;
+
+	public void beginScan(int count)
+	{
+		childCount = count;
+		if (childType.length < count)
+		{
+			childType = new int[count];
+			childWidth = new int[count];
+			childOpacity = new int[count];
+			childHidden = new boolean[count];
+			childIgnored = new boolean[count];
+			childText = new String[count];
+			childBanked = new boolean[count];
+		}
+		Arrays.fill(childIgnored, 0, count, true);
+		Arrays.fill(childBanked, 0, count, false);
+	}
+
+	public void setChild(int index, int widgetType, int width, int opacity, boolean hidden, String text)
+	{
+		childType[index] = widgetType;
+		childWidth[index] = width;
+		childOpacity[index] = opacity;
+		childHidden[index] = hidden;
+		childIgnored[index] = false;
+		childText[index] = text;
+	}
+
+	/**
+	 * Reads the sets from the children in one pass. Each set is framed by an outline, arrow and footer, followed by its
+	 * TEXT header and the icons of its items. Dividers are junk, and any other widget outside a set, icons included, is
+	 * skipped. Returns false, with no sets and a diagnostic in {@link #getScanError()}, when a header is not preceded by
+	 * its frame.
+	 */
+	public boolean scan()
+	{
+		rememberSortKeys();
+		setCount = 0;
+		junkCount = 0;
+		itemTotal = 0;
+		collapsibleCount = 0;
+		scanError = null;
+		ensureSetCapacity(childCount / 4 + 1);
+		if (itemChildren.length < childCount)
+		{
+			itemChildren = new int[childCount];
+		}
+
+		int set = NO_SET;
+		int storedItems = 0;
+		// Consecutive widgets since the last set or divider, the last three of which frame the next set
+		int frame = 0;
+		for (int i = 0; i < childCount; i++)
+		{
+			boolean icon = !childIgnored[i] && childType[i] != WidgetType.TEXT && childWidth[i] == WIDGET_ICON_WIDTH;
+			if (set != NO_SET && !icon)
+			{
+				endSet(set, i, storedItems);
+				set = NO_SET;
+			}
+
+			if (childIgnored[i])
+			{
+				frame = 0;
+			}
+			else if (childType[i] == WidgetType.TEXT)
+			{
+				if (frame < SET_FRAME_WIDGETS)
+				{
+					return fail(i, "set header is not preceded by an outline, arrow and footer");
+				}
+				set = beginSet(i);
+				storedItems = 0;
+				frame = 0;
+			}
+			else if (icon && set != NO_SET)
+			{
+				if (!childHidden[i])
+				{
+					itemChildren[itemTotal++] = i;
+					if (childOpacity[i] == 0)
+					{
+						storedItems++;
+					}
+				}
+			}
+			else if (childWidth[i] == WIDGET_DIVIDER_WIDTH)
+			{
+				if (junkCount == junk.length)
+				{
+					junk = Arrays.copyOf(junk, Math.max(8, junkCount * 2));
+				}
+				junk[junkCount++] = i;
+				frame = 0;
+			}
+			else
+			{
+				// Stray widgets between sets may frame the next one
+				frame++;
+			}
+		}
+
+		if (set != NO_SET)
+		{
+			endSet(set, childCount, storedItems);
+		}
+
+		if (!reuseSortKeys())
+		{
+			rankNames();
+			sorted = false;
+		}
+		return true;
+	}
+
+	private void rememberSortKeys()
+	{
+		if (previousName.length < setCount)
+		{
+			previousName = new String[header.length];
+			previousItemCount = new int[header.length];
+			previousStored = new int[header.length];
+		}
+		previousSetCount = setCount;
+		System.arraycopy(searchName, 0, previousName, 0, setCount);
+		System.arraycopy(itemCount, 0, previousItemCount, 0, setCount);
+		System.arraycopy(stored, 0, previousStored, 0, setCount);
+	}
+
+	/**
+	 * Keeps the name ranks and sort order of the previous scan when it found the same sets, marking only the sets whose
+	 * stored count changed for resorting. Returns false when the sets differ and must be ranked and sorted again.
+	 */
+	private boolean reuseSortKeys()
+	{
+		if (!sorted || setCount != previousSetCount)
+		{
+			return false;
+		}
+
+		for (int set = 0; set < setCount; set++)
+		{
+			if (itemCount[set] != previousItemCount[set] || !Objects.equals(searchName[set], previousName[set]))
+			{
+				return false;
+			}
+		}
+
+		for (int set = 0; set < setCount; set++)
+		{
+			// The name order does not depend on stored counts
+			if (stored[set] != previousStored[set] && sortOrder != SORT_BY_NAME)
+			{
+				resortSets.set(set);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether {@link #sort(int)} with {@code order} has any work to do.
+	 */
+	public boolean isSortStale(int order)
+	{
+		return !sorted || order != sortOrder || !resortSets.isEmpty();
+	}
+
+	/**
+	 * Why the last scan failed, or null when it succeeded.
+	 */
+	public String getScanError()
+	{
+		return scanError;
+	}
+
+	private boolean fail(int child, String error)
+	{
+		scanError = "Unexpected storage layout at child " + child + " of " + childCount + ": " + error;
+		setCount = 0;
+		junkCount = 0;
+		sorted = false;
+		return false;
+	}
+
+	/**
+	 * Ranks the sets by the collation key of their normalized names, so sorting compares ints instead of text.
+	 */
+	private void rankNames()
+	{
+		CollationKey[] keys = new CollationKey[setCount];
+		Integer[] byName = new Integer[setCount];
+		for (int set = 0; set < setCount; set++)
+		{
+			keys[set] = collator.getCollationKey(searchName[set] == null ? "" : searchName[set]);
+			byName[set] = set;
+		}
+
+		// Stable, so sets with equal names keep their scan order
+		Arrays.sort(byName, (a, b) -> keys[a].compareTo(keys[b]));
+		for (int rank = 0; rank < setCount; rank++)
+		{
+			nameRank[byName[rank]] = rank;
+		}
+	}
+
+	private int beginSet(int textId)
+	{
+		if (setCount == header.length)
+		{
+			ensureSetCapacity(setCount * 2);
+		}
+
+		int set = setCount++;
+		header[set] = textId;
+		itemStart[set] = itemTotal;
+		String text = childText[textId];
+		if (text == null)
+		{
+			searchName[set] = null;
+		}
+		else if (!text.equals(searchText[set]))
+		{
+			searchName[set] = Text.removeTags(text).toLowerCase(Locale.ROOT);
+		}
+		searchText[set] = text;
+		return set;
+	}
+
+	private void endSet(int set, int end, int storedItems)
+	{
+		int items = itemTotal - itemStart[set];
+		itemEnd[set] = end;
+		itemCount[set] = items;
+		stored[set] = storedItems;
+		type[set] = classify(storedItems, items);
+		collapsible[set] = items <= MAX_HALF_SET;
+		if (collapsible[set])
+		{
+			collapsibleCount++;
+		}
+	}
+
+	public void setStored(int set, int storedItems)
+	{
+		// The name order does not depend on stored counts
+		if (stored[set] != storedItems && sorted && sortOrder != SORT_BY_NAME)
+		{
+			resortSets.set(set);
+		}
+		stored[set] = storedItems;
+		type[set] = classify(storedItems, itemCount[set]);
+	}
+
+	public static int classify(int storedItems, int items)
+	{
+		if (storedItems == items)
+		{
+			return SET_TYPE_FULL;
+		}
+		else if (storedItems == 0)
+		{
+			return SET_TYPE_EMPTY;
+		}
+		return SET_TYPE_PARTIAL;
+	}
+
+	/**
+	 * Hash of everything the filter, sort and layout read from the scanned sets: their positions, names, item counts,
+	 * stored counts and hidden and banked items. Scans that would be laid out identically have equal fingerprints.
+	 */
+	public long getFingerprint()
+	{
+		long hash = mix(FNV_OFFSET, childCount);
+		for (int set = 0; set < setCount; set++)
+		{
+			hash = mix(hash, header[set]);
+			hash = mix(hash, itemEnd[set]);
+			hash = mix(hash, stored[set]);
+			hash = mix(hash, childText[header[set]] == null ? 0 : childText[header[set]].hashCode());
+			for (int i = header[set] + 1; i < itemEnd[set]; i++)
+			{
+				hash = mix(hash, (childHidden[i] ? 1 : 0) | (childBanked[i] ? 2 : 0));
+			}
+		}
+		for (int i = 0; i < junkCount; i++)
+		{
+			hash = mix(hash, junk[i]);
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, int value)
+	{
+		return (hash ^ value) * FNV_PRIME;
+	}
+
+	/**
+	 * Shows the sets of the enabled types, restricted to the sets set in {@code matches} unless it is null, in the
+	 * order of the last {@link #sort(int)}.
+	 */
+	public void filter(boolean showEmpty, boolean showPartial, boolean showFull, BitSet matches)
+	{
+		if (order.length < setCount)
+		{
+			order = new int[setCount];
+			visible = new boolean[setCount];
+			top = new int[setCount];
+			column = new int[setCount];
+		}
+		if (!sorted)
+		{
+			sort(sortOrder);
+		}
+
+		visibleCount = 0;
+		for (int p = 0; p < setCount; p++)
+		{
+			int set = sortedSets[p];
+			visible[set] = (type[set] != SET_TYPE_EMPTY || showEmpty) && (type[set] != SET_TYPE_PARTIAL || showPartial) && (type[set] != SET_TYPE_FULL || showFull)
+				&& (matches == null || matches.get(set));
+			if (visible[set])
+			{
+				order[visibleCount++] = set;
+			}
+		}
+	}
+
+	/**
+	 * Orders every set by {@code order}, one of the {@code SORT_BY} constants, with ties broken by name. After a scan
+	 * or a change of order every set is sorted; otherwise only the sets whose stored count changed are repositioned.
+	 */
+	public void sort(int order)
+	{
+		if (!sorted || order != sortOrder)
+		{
+			sortOrder = order;
+			for (int set = 0; set < setCount; set++)
+			{
+				sortBuffer[set] = set;
+				sortedSets[set] = set;
+			}
+			mergeSort(sortBuffer, sortedSets, 0, setCount);
+			sorted = true;
+		}
+		else if (!resortSets.isEmpty())
+		{
+			resort();
+		}
+		resortSets.clear();
+	}
+
+	/**
+	 * Takes the sets in {@link #resortSets} out of the order and inserts each at its new position.
+	 */
+	private void resort()
+	{
+		int count = 0;
+		for (int p = 0; p < setCount; p++)
+		{
+			if (!resortSets.get(sortedSets[p]))
+			{
+				sortedSets[count++] = sortedSets[p];
+			}
+		}
+
+		for (int set = resortSets.nextSetBit(0); set >= 0; set = resortSets.nextSetBit(set + 1))
+		{
+			int low = 0;
+			int high = count;
+			while (low < high)
+			{
+				int mid = (low + high) >>> 1;
+				if (compare(sortedSets[mid], set) < 0)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid;
+				}
+			}
+
+			System.arraycopy(sortedSets, low, sortedSets, low + 1, count - low);
+			sortedSets[low] = set;
+			count++;
+		}
+	}
+
+	private void mergeSort(int[] src, int[] dest, int from, int to)
+	{
+		if (to - from < 2)
+		{
+			return;
+		}
+
+		int mid = (from + to) >>> 1;
+		mergeSort(dest, src, from, mid);
+		mergeSort(dest, src, mid, to);
+
+		for (int i = from, p = from, q = mid; i < to; i++)
+		{
+			if (q >= to || (p < mid && compare(src[p], src[q]) <= 0))
+			{
+				dest[i] = src[p++];
+			}
+			else
+			{
+				dest[i] = src[q++];
+			}
+		}
+	}
+
+	/**
+	 * Total order of sets under the current sort order, so an incrementally maintained order equals a full sort.
+	 */
+	private int compare(int a, int b)
+	{
+		int result;
+		switch (sortOrder)
+		{
+			case SORT_BY_COMPLETION:
+				// Most complete first, comparing stored / items without division; sets without items count as empty
+				long completionA = itemCount[a] == 0 ? 0 : (long) stored[a] * Math.max(1, itemCount[b]);
+				long completionB = itemCount[b] == 0 ? 0 : (long) stored[b] * Math.max(1, itemCount[a]);
+				result = Long.compare(completionB, completionA);
+				break;
+			case SORT_BY_STORED:
+				result = Integer.compare(stored[b], stored[a]);
+				break;
+			case SORT_BY_ITEMS:
+				result = Integer.compare(itemCount[b], itemCount[a]);
+				break;
+			default:
+				result = 0;
+				break;
+		}
+
+		if (result == 0)
+		{
+			result = Integer.compare(nameRank[a], nameRank[b]);
+		}
+		return result;
+	}
+
+	public void layout()
+	{
+		rows = 0;
+		dividerCount = 0;
+		for (int p = 0; p < visibleCount; p++)
+		{
+			int set = order[p];
+			if (p > 0 && collapsible[order[p - 1]] && column[p - 1] != COLUMN_RIGHT && collapsible[set])
+			{
+				column[p] = COLUMN_RIGHT;
+				top[p] = (rows - 1) * WIDGET_SET_HEIGHT;
+				dividerCount++;
+			}
+			else
+			{
+				column[p] = p < visibleCount - 1 && collapsible[set] && collapsible[order[p + 1]] ? COLUMN_LEFT : COLUMN_FULL;
+				top[p] = rows * WIDGET_SET_HEIGHT;
+				rows++;
+			}
+		}
+	}
+
+	/**
+	 * The most dividers any layout of the scanned sets can need, one per pair of collapsible sets.
+	 */
+	public int getMaxDividerCount()
+	{
+		return collapsibleCount / 2;
+	}
+
+	public int getScrollHeight(int containerHeight)
+	{
+		int y = rows * WIDGET_SET_HEIGHT - WIDGET_OFFSET;
+		return containerHeight > y ? 0 : y;
+	}
+
+	public static int getItemX(int column, int item)
+	{
+		int adjustmentX = column == COLUMN_RIGHT ? WIDGET_SET_WIDTH + WIDGET_OFFSET : WIDGET_OFFSET;
+		return (WIDGET_ICON_WIDTH + 2 * WIDGET_OFFSET) * item + adjustmentX;
+	}
+
+	public int getChildCount()
+	{
+		return childCount;
+	}
+
+	public boolean isChildIgnored(int index)
+	{
+		return childIgnored[index];
+	}
+
+	public int getChildType(int index)
+	{
+		return childType[index];
+	}
+
+	public int getChildWidth(int index)
+	{
+		return childWidth[index];
+	}
+
+	public int getChildOpacity(int index)
+	{
+		return childOpacity[index];
+	}
+
+	public void setBanked(int index, boolean banked)
+	{
+		childBanked[index] = banked;
+	}
+
+	public boolean isBanked(int index)
+	{
+		return childBanked[index];
+	}
+
+	public boolean isChildHidden(int index)
+	{
+		return childHidden[index];
+	}
+
+	public String getChildText(int index)
+	{
+		return childText[index];
+	}
+
+	public int getSetCount()
+	{
+		return setCount;
+	}
+
+	public int getHeader(int set)
+	{
+		return header[set];
+	}
+
+	public int getItemCount(int set)
+	{
+		return itemCount[set];
+	}
+
+	/**
+	 * Child index of the {@code item}th visible item of {@code set}.
+	 */
+	public int getItem(int set, int item)
+	{
+		return itemChildren[itemStart[set] + item];
+	}
+
+	public int getStored(int set)
+	{
+		return stored[set];
+	}
+
+	public int getType(int set)
+	{
+		return type[set];
+	}
+
+	public boolean isCollapsible(int set)
+	{
+		return collapsible[set];
+	}
+
+	public String getName(int set)
+	{
+		return childText[header[set]];
+	}
+
+	/**
+	 * Header text of {@code set} without tags, in lower case.
+	 */
+	public String getSearchName(int set)
+	{
+		return searchName[set];
+	}
+
+	public int getJunkCount()
+	{
+		return junkCount;
+	}
+
+	public int getJunk(int index)
+	{
+		return junk[index];
+	}
+
+	public boolean isVisible(int set)
+	{
+		return visible[set];
+	}
+
+	public int getVisibleCount()
+	{
+		return visibleCount;
+	}
+
+	public int getVisibleSet(int position)
+	{
+		return order[position];
+	}
+
+	public int getTop(int position)
+	{
+		return top[position];
+	}
+
+	public int getColumn(int position)
+	{
+		return column[position];
+	}
+
+	public int getDividerCount()
+	{
+		return dividerCount;
+	}
+
+	private void ensureSetCapacity(int capacity)
+	{
+		if (header.length >= capacity)
+		{
+			return;
+		}
+
+		header = Arrays.copyOf(header, capacity);
+		itemStart = Arrays.copyOf(itemStart, capacity);
+		itemEnd = Arrays.copyOf(itemEnd, capacity);
+		itemCount = Arrays.copyOf(itemCount, capacity);
+		stored = Arrays.copyOf(stored, capacity);
+		type = Arrays.copyOf(type, capacity);
+		collapsible = Arrays.copyOf(collapsible, capacity);
+		searchName = Arrays.copyOf(searchName, capacity);
+		searchText = Arrays.copyOf(searchText, capacity);
+		nameRank = Arrays.copyOf(nameRank, capacity);
+		sortedSets = Arrays.copyOf(sortedSets, capacity);
+		sortBuffer = Arrays.copyOf(sortBuffer, capacity);
+	}
+}
@@ -0,0 +1,82 @@
+package com.pohstorage;
+
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+import javax.inject.Inject;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+
+import static com.pohstorage.PohStorageMetrics.Counter;
+import static com.pohstorage.PohStorageMetrics.Phase;
+import static com.pohstorage.PohStorageMetrics.formatMillis;
+
+public class PohStorageOverlay extends OverlayPanel
+{
+	private final PohStoragePlugin plugin;
+	private final PohStorageMetrics metrics;
+
+	@Inject
+	private PohStorageOverlay(PohStoragePlugin plugin)
+	{
+		this.plugin = plugin;
+		this.metrics = plugin.getMetrics();
+		setPosition(OverlayPosition.TOP_LEFT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		PohStorageSettings settings = plugin.getSettings();
+		if (settings == null || !settings.isShowPerformanceOverlay())
+		{
+			return null;
+		}
+
+		panelComponent.getChildren().add(TitleComponent.builder()
+			.text("POH Storage")
+			.build());
+		panelComponent.getChildren().add(LineComponent.builder()
+			.left("ms")
+			.right("p50 / p99 / max")
+			.build());
+
+		for (Phase phase : Phase.values())
+		{
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(phase.getName())
+				.right(formatMillis(metrics.getPercentile(phase, 50)) + " / " + formatMillis(metrics.getPercentile(phase, 99)) + " / " + formatMillis(metrics.getMax(phase)))
+				.build());
+		}
+
+		panelComponent.getChildren().add(LineComponent.builder()
+			.left("Per event")
+			.right("last / max")
+			.build());
+
+		for (Counter counter : Counter.values())
+		{
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(counter.getName())
+				.right(metrics.getLast(counter) + " / " + metrics.getMaxPerEvent(counter))
+				.build());
+		}
+
+		panelComponent.getChildren().add(LineComponent.builder()
+			.left("Stage")
+			.right("hits / runs")
+			.build());
+
+		for (PohStoragePipeline.Stage stage : PohStoragePipeline.Stage.values())
+		{
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(stage.getName())
+				.right(metrics.getHits(stage) + " / " + metrics.getRecomputes(stage))
+				.build());
+		}
+
+		return super.render(graphics);
+	}
+}
@@ -0,0 +1,93 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Which relayout stages are out of date. Each stage memoizes its output in the session and reruns only once one of
+ * its inputs changed; invalidating a stage invalidates every stage reading its output:
+ * <pre>
+ * scan -> classify -> filter -> layout -> paint
+ *                  -> sort   -/
+ * </pre>
+ * Hits and recomputes of every stage are counted into a {@link PohStorageMetrics.Batch}, as stages complete on the
+ * layout thread too.
+ */
+public class PohStoragePipeline
+{
+	@Getter
+	@RequiredArgsConstructor
+	public enum Stage
+	{
+		// The sets read from the live widgets
+		SCAN("Scan"),
+		// The stored counts and types of sets whose items changed
+		CLASSIFY("Classify"),
+		// The sets matching the filter query
+		FILTER("Filter"),
+		// The order of every set
+		SORT("Sort"),
+		// The shown sets, their positions and the plan placing them
+		LAYOUT("Layout"),
+		// The outline shades of the plan
+		PAINT("Paint");
+
+		private final String name;
+
+		private int mask()
+		{
+			return 1 << ordinal();
+		}
+	}
+
+	private static final int ALL = (1 << Stage.values().length) - 1;
+
+	private final PohStorageMetrics.Batch metrics;
+	private int dirty = ALL;
+
+	public PohStoragePipeline(PohStorageMetrics.Batch metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Marks an input of {@code stage} changed, so it and every stage after it rerun.
+	 */
+	public void invalidate(Stage stage)
+	{
+		dirty |= dependents(stage);
+	}
+
+	public boolean isDirty(Stage stage)
+	{
+		return (dirty & stage.mask()) != 0;
+	}
+
+	/**
+	 * Records that {@code stage} is up to date, either recomputed or served from its memoized output.
+	 */
+	public void complete(Stage stage, boolean recomputed)
+	{
+		dirty &= ~stage.mask();
+		metrics.countStage(stage, recomputed);
+	}
+
+	private static int dependents(Stage stage)
+	{
+		switch (stage)
+		{
+			case SCAN:
+				return ALL;
+			case CLASSIFY:
+				return ALL & ~Stage.SCAN.mask();
+			case FILTER:
+				return Stage.FILTER.mask() | Stage.LAYOUT.mask() | Stage.PAINT.mask();
+			case SORT:
+				return Stage.SORT.mask() | Stage.LAYOUT.mask() | Stage.PAINT.mask();
+			case LAYOUT:
+				return Stage.LAYOUT.mask() | Stage.PAINT.mask();
+			default:
+				return Stage.PAINT.mask();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.pohstorage;
+
+import java.util.Arrays;
+
+/**
+ * Least recently used layout plans, keyed by everything a plan is computed from, so switching back to a recently seen
+ * view only has to apply its cached plan. Plans cover every set; the scroll window of a virtualized relayout is applied
+ * to them afterwards, so scrolling keeps hitting. Lookups compare against preallocated keys and allocate nothing.
+ */
+public class PohStoragePlanCache
+{
+	private final Key[] keys;
+	private final PohStorageLayout[] plans;
+	private final long[] lastUsed;
+	private long clock;
+
+	public PohStoragePlanCache(int capacity)
+	{
+		keys = new Key[capacity];
+		plans = new PohStorageLayout[capacity];
+		lastUsed = new long[capacity];
+		for (int i = 0; i < capacity; i++)
+		{
+			keys[i] = new Key();
+		}
+	}
+
+	public PohStorageLayout get(Key key)
+	{
+		for (int i = 0; i < plans.length; i++)
+		{
+			if (plans[i] != null && keys[i].matches(key))
+			{
+				lastUsed[i] = ++clock;
+				return plans[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a cached plan that places every widget where a plan for {@code key} would, differing in set shades at
+	 * most, for repainting rather than laying out again.
+	 */
+	public PohStorageLayout getLayout(Key key)
+	{
+		for (int i = 0; i < plans.length; i++)
+		{
+			if (plans[i] != null && keys[i].matchesLayout(key))
+			{
+				lastUsed[i] = ++clock;
+				return plans[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Caches {@code plan} under a copy of {@code key}. Returns the plan it evicted, if any, so it can be reused.
+	 */
+	public PohStorageLayout put(Key key, PohStorageLayout plan)
+	{
+		if (plans.length == 0)
+		{
+			return plan;
+		}
+
+		int slot = 0;
+		for (int i = 0; i < plans.length; i++)
+		{
+			if (plans[i] == null)
+			{
+				slot = i;
+				break;
+			}
+			if (lastUsed[i] < lastUsed[slot])
+			{
+				slot = i;
+			}
+		}
+
+		PohStorageLayout evicted = plans[slot];
+		keys[slot].copy(key);
+		plans[slot] = plan;
+		lastUsed[slot] = ++clock;
+		return evicted;
+	}
+
+	/**
+	 * Drops {@code plan}, for when it no longer matches the key it was cached under.
+	 */
+	public void remove(PohStorageLayout plan)
+	{
+		for (int i = 0; i < plans.length; i++)
+		{
+			if (plans[i] == plan)
+			{
+				plans[i] = null;
+				keys[i].filter = null;
+			}
+		}
+	}
+
+	public boolean contains(PohStorageLayout plan)
+	{
+		for (PohStorageLayout cached : plans)
+		{
+			if (cached == plan)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(plans, null);
+		for (Key key : keys)
+		{
+			key.filter = null;
+		}
+	}
+
+	/**
+	 * The inputs of a layout plan: the filter state and sort order, a fingerprint of the scanned sets and the
+	 * appearance and container height it was laid out for.
+	 */
+	public static class Key
+	{
+		private int filterMask;
+		private PohStorageFilter filter;
+		private int sortOrder;
+		private long fingerprint;
+		private final int[] setSprites = new int[3];
+		private int normalOpacity;
+		private int containerHeight;
+
+		public void set(int filterMask, PohStorageFilter filter, int sortOrder, long fingerprint, int[] setSprites, int normalOpacity, int containerHeight)
+		{
+			this.filterMask = filterMask;
+			this.filter = filter;
+			this.sortOrder = sortOrder;
+			this.fingerprint = fingerprint;
+			System.arraycopy(setSprites, 0, this.setSprites, 0, this.setSprites.length);
+			this.normalOpacity = normalOpacity;
+			this.containerHeight = containerHeight;
+		}
+
+		public void copy(Key other)
+		{
+			set(other.filterMask, other.filter, other.sortOrder, other.fingerprint, other.setSprites, other.normalOpacity, other.containerHeight);
+		}
+
+		/**
+		 * Whether a plan for {@code other} places every widget where a plan for this key does, differing in set shades
+		 * at most.
+		 */
+		private boolean matchesLayout(Key other)
+		{
+			return filterMask == other.filterMask
+				&& filter == other.filter
+				&& sortOrder == other.sortOrder
+				&& fingerprint == other.fingerprint
+				&& containerHeight == other.containerHeight;
+		}
+
+		private boolean matches(Key other)
+		{
+			return matchesLayout(other)
+				&& setSprites[0] == other.setSprites[0]
+				&& setSprites[1] == other.setSprites[1]
+				&& setSprites[2] == other.setSprites[2]
+				&& normalOpacity == other.normalOpacity;
+		}
+	}
+}
@@ -2,23 +2,45 @@ package com.pohstorage;
 
 import com.google.inject.Provides;
 import javax.inject.Inject;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
+import net.runelite.api.events.ClientTick;
+import net.runelite.api.events.CommandExecuted;
+import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.MenuOptionClicked;
 import net.runelite.api.events.WidgetClosed;
 import net.runelite.api.events.WidgetLoaded;
 import net.runelite.api.widgets.*;
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
+import net.runelite.client.chat.ChatMessageManager;
+import net.runelite.client.chat.QueuedMessage;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ConfigChanged;
-import net.runelite.client.game.SpriteManager;
+import net.runelite.client.game.ItemManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
-
-import java.util.*;
+import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.NavigationButton;
+import net.runelite.client.ui.overlay.OverlayManager;
+import net.runelite.client.util.ImageUtil;
+import net.runelite.client.util.Text;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.pohstorage.PohStorageConfig.preserveFilters.*;
+import static com.pohstorage.PohStorageModel.*;
 
 @Slf4j
 @PluginDescriptor(
@@ -31,19 +53,56 @@ public class PohStoragePlugin extends Plugin
 	private boolean showEmpty = true;
 	private boolean showPartial = true;
 	private boolean showFull = true;
-	private int originalScroll;
+	// Replaced as a whole on every config change, so readers on any thread see a consistent copy
+	@Getter(AccessLevel.PACKAGE)
+	private volatile PohStorageSettings settings;
+	// The settings setSprites was resolved for
+	private PohStorageSettings spriteSettings;
+	// The filter query error last reported in the chat, so an unchanged error is not repeated
+	private String reportedFilterError;
 	private Widget emptyCheck, partialCheck, fullCheck, emptyTitle, partialTitle, fullTitle;
-	private List<PohStorageSet> storageSets = new ArrayList<PohStorageSet>();
-	private List<PohStorageWidget> junkWidgets = new ArrayList<PohStorageWidget>();
-	private List<Widget> addedDividers = new ArrayList<Widget>();
-	private PohSprites[] spriteDefinitions;
+	@Getter(AccessLevel.PACKAGE)
+	private volatile PohStorageSession session;
+	private final int[] setSprites = new int[3];
+	private final Runnable relayout = this::applyChanges;
+	// Preallocated so starting and finishing a relayout allocates no tasks
+	private final Runnable computeChanges = this::computeChanges;
+	private final BooleanSupplier finishChanges = () ->
+	{
+		finishChanges();
+		return true;
+	};
+	private final PohStorageScheduler scheduler = new PohStorageScheduler();
+	private PohItemMap inventory = new PohItemMap();
+	private PohItemMap nextInventory = new PohItemMap();
+	private final PohItemCounts bank = new PohItemCounts(BANK_EXPECTED_ITEMS);
+	private PohStorageSearchIndex searchIndex;
+	private PohStorageSearchPanel searchPanel;
+	private final Runnable refreshSearch = () -> searchPanel.refresh();
+	// The search index revision the search panel was last refreshed at
+	private int searchRevision = -1;
+	private NavigationButton navigationButton;
+	private long indexedAccount = -1;
+	private PohSpriteCache shadeSprites;
+	private ExecutorService layoutExecutor;
+	// The session whose plan is being computed in the background, only changed on the client thread
+	private PohStorageSession computing;
+	private int predictionTick;
+
+	@Getter(AccessLevel.PACKAGE)
+	private final PohStorageMetrics metrics = new PohStorageMetrics();
 
 	private final String CONFIG_GROUP = "pohstorage";
 	private final String CONTROL_ACTION = "Toggle";
-	private final String TITLE_REGEX = "[\\(|:]";
-	private final List<String> TITLES = Arrays.asList("Armour Case", "Cape Rack", "Toy Box", "Fancy Dress Box", "Treasure Chest", "Magic Wardrobe");
+	private final String CATALOG_DIRECTORY = "poh-storage";
+	private final String METRICS_COMMAND = "pohstorage";
+	static final String LAYOUT_THREAD_NAME = "POH Storage layout";
 
 	private final int CONTAINER_HEIGHT_ADJUSTMENT = 25;
+	private final int SPRITE_CACHE_SIZE = 8;
+	private final int PREDICTION_TIMEOUT_TICKS = 3;
+	private static final int BANK_EXPECTED_ITEMS = 1024;
+	private final String[] DEPOSIT_OPTIONS = {"Store", "Deposit"};
 
 	private final int CONTROL_LABEL_COLOR = 0xcfcfcf;
 	private final int CONTROL_Y = 42;
@@ -53,18 +112,6 @@ public class PohStoragePlugin extends Plugin
 	private final int CONTROL_CHECKBOX_HEIGHT = 16;
 	private final int CONTROL_SPACING = 175;
 
-	private final int WIDGET_DIVIDER_WIDTH = 16;
-	private final int WIDGET_ICON_WIDTH = 36;
-	private final int WIDGET_ICON_TOP_OFFSET = 20;
-	private final int WIDGET_SET_WIDTH = 210;
-	private final int WIDGET_SET_HEIGHT = 60;
-	private final int WIDGET_OFFSET = 3;
-	private final int MAX_HALF_SET = 4;
-
-	private final int SET_TYPE_EMPTY = 0;
-	private final int SET_TYPE_PARTIAL = 1;
-	private final int SET_TYPE_FULL = 2;
-
 	//Eventually submit a PR to add these to WidgetID and WidgetInfo
 	private final int STORAGE_GROUP_ID = 675;
 	private final int STORAGE_CONTAINER = 1;
@@ -88,78 +135,134 @@ public class PohStoragePlugin extends Plugin
 	private PohStorageConfig config;
 
 	@Inject
-	private SpriteManager spriteManager;
+	private ConfigManager configManager;
+
+	@Inject
+	private ItemManager itemManager;
+
+	@Inject
+	private ClientToolbar clientToolbar;
+
+	@Inject
+	private ChatMessageManager chatMessageManager;
+
+	@Inject
+	private OverlayManager overlayManager;
+
+	@Inject
+	private PohStorageOverlay overlay;
 
 	@Override
 	protected void startUp() throws Exception
 	{
 		log.debug("POH Storage Started!");
 
-		spriteManager.addSpriteOverrides(PohSprites.values());
+		migrateShadeColor("fullSetColor", "fullSetShade");
+		migrateShadeColor("partialSetColor", "partialSetShade");
+		migrateShadeColor("emptySetColor", "emptySetShade");
+		loadSettings();
+		shadeSprites = new PohSpriteCache(client, SPRITE_CACHE_SIZE);
+		layoutExecutor = Executors.newSingleThreadExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, LAYOUT_THREAD_NAME);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		searchIndex = new PohStorageSearchIndex(itemId -> itemManager.getItemComposition(itemId).getName());
+		searchPanel = new PohStorageSearchPanel(searchIndex);
+		navigationButton = NavigationButton.builder()
+			.tooltip("POH Storage")
+			.icon(ImageUtil.loadImageResource(getClass(), "search_icon.png"))
+			.priority(7)
+			.panel(searchPanel)
+			.build();
+		clientToolbar.addNavigation(navigationButton);
+		overlayManager.add(overlay);
 
 		loadConfig();
-		if (pohStorageLoaded())
+		clientThread.invokeLater(() ->
 		{
-			clientThread.invokeLater(() ->
-			{
-				if (titleCheck())
-				{
-					originalScroll = client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER).getScrollHeight();
-					applyChanges();
-					updateWidgetHeight(CONTAINER_HEIGHT_ADJUSTMENT);
-					addControls();
-				}
-			});
-		}
+			loadCatalogs();
+			openSession();
+		});
 	}
 
 	@Override
 	protected void shutDown() throws Exception
 	{
 		log.debug("POH Storage Stopped!");
-		if (pohStorageLoaded())
+		// Shut down once the plan being computed is done, as waiting for it queues a task on the layout thread
+		ExecutorService executor = layoutExecutor;
+		clientThread.invokeLater(() ->
 		{
-			clientThread.invokeLater(() ->
+			awaitComputation(executor);
+			executor.shutdown();
+			if (session != null)
 			{
-				if (titleCheck())
-				{
-					resetWidgets();
-					removeControls();
-					updateWidgetHeight(-1 * CONTAINER_HEIGHT_ADJUSTMENT);
-					emptyCheck = null;
-					partialCheck = null;
-					fullCheck = null;
-					emptyTitle = null;
-					partialTitle = null;
-					fullTitle = null;
-				}
-			});
+				session.adjustHeight(-1 * CONTAINER_HEIGHT_ADJUSTMENT);
+				session.reset();
+				removeControls();
+				emptyCheck = null;
+				partialCheck = null;
+				fullCheck = null;
+				emptyTitle = null;
+				partialTitle = null;
+				fullTitle = null;
+				closeSession();
+			}
+			shadeSprites.clear();
+		});
+		clientToolbar.removeNavigation(navigationButton);
+		overlayManager.remove(overlay);
+		indexedAccount = -1;
+	}
+
+	@Subscribe
+	public void onCommandExecuted(CommandExecuted commandExecuted)
+	{
+		if (!commandExecuted.getCommand().equalsIgnoreCase(METRICS_COMMAND))
+		{
+			return;
+		}
+
+		if (commandExecuted.getArguments().length > 0 && commandExecuted.getArguments()[0].equalsIgnoreCase("reset"))
+		{
+			metrics.reset();
+			log.info("POH Storage metrics reset");
+		}
+		else
+		{
+			log.info(metrics.dump());
+		}
+	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged gameStateChanged)
+	{
+		if (gameStateChanged.getGameState() == GameState.LOGGED_IN)
+		{
+			clientThread.invokeLater(this::loadCatalogs);
+		}
+		else if (gameStateChanged.getGameState() == GameState.LOGIN_SCREEN)
+		{
+			bank.clear();
 		}
-		spriteManager.removeSpriteOverrides(PohSprites.values());
 	}
 
 	@Subscribe
 	public void onWidgetLoaded(WidgetLoaded e)
 	{
-		if (e.getGroupId() == STORAGE_GROUP_ID && pohStorageLoaded())
+		if (e.getGroupId() == STORAGE_GROUP_ID)
 		{
-			clientThread.invokeLater(() ->
-			{
-				if (titleCheck())
-				{
-					originalScroll = client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER).getScrollHeight();
-					applyChanges();
-					updateWidgetHeight(CONTAINER_HEIGHT_ADJUSTMENT);
-					addControls();
-				}
-			});
+			clientThread.invokeLater(this::openSession);
 		}
 	}
 
 	@Subscribe
 	public void onWidgetClosed(WidgetClosed e)
 	{
-		if (e.getGroupId() == STORAGE_GROUP_ID && pohStorageLoaded())
+		if (e.getGroupId() == STORAGE_GROUP_ID && session != null)
 		{
 			emptyCheck = null;
 			partialCheck = null;
@@ -167,8 +270,12 @@ public class PohStoragePlugin extends Plugin
 			emptyTitle = null;
 			partialTitle = null;
 			fullTitle = null;
+			closeSession();
+
+			log.debug("Relayouts requested: {}, run: {}", scheduler.getRequested(), scheduler.getExecuted());
+			scheduler.resetCounters();
 
-			if (config.preserveFilters() == NEVER)
+			if (settings.getPreserveFilters() == NEVER)
 			{
 				showEmpty = true;
 				showPartial = true;
@@ -180,32 +287,113 @@ public class PohStoragePlugin extends Plugin
 	@Subscribe
 	public void onItemContainerChanged(ItemContainerChanged event)
 	{
-		if (pohStorageLoaded() && event.getContainerId() == InventoryID.INVENTORY.getId())
+		if (event.getContainerId() == InventoryID.INVENTORY.getId() && updateInventory(event.getItemContainer().getItems()) && session != null)
 		{
-			clientThread.invokeLater(() ->
+			scheduler.request();
+		}
+		else if (event.getContainerId() == InventoryID.BANK.getId() && updateBank(event.getItemContainer().getItems()) && session != null)
+		{
+			scheduler.request();
+		}
+	}
+
+	@Subscribe
+	public void onMenuOptionClicked(MenuOptionClicked event)
+	{
+		if (session == null)
+		{
+			return;
+		}
+
+		// Show the outcome of a deposit straight away instead of after the server round trip
+		boolean predicted = false;
+		if (event.getParam1() == (STORAGE_GROUP_ID << 16 | STORAGE_DEPOSIT_INVENTORY_BUTTON))
+		{
+			for (int slot = 0; slot < inventory.capacity(); slot++)
 			{
-				if (titleCheck())
+				if (inventory.isOccupied(slot))
 				{
-					applyChanges();
+					predicted |= session.predictStored(inventory.keyAt(slot));
 				}
-			});
+			}
+		}
+		else if (event.getParam1() >>> 16 != STORAGE_GROUP_ID && isDepositOption(event.getMenuOption()) && inventory.containsKey(event.getItemId()))
+		{
+			predicted = session.predictStored(event.getItemId());
+		}
+
+		if (predicted)
+		{
+			predictionTick = client.getTickCount();
+			scheduler.request();
+		}
+	}
+
+	@Subscribe
+	public void onClientTick(ClientTick clientTick)
+	{
+		if (session != null && session.isViewportOutsideWindow())
+		{
+			scheduler.request();
+		}
+
+		// The server ignored the deposit, or its widgets never reflected it
+		if (session != null && session.hasPredictions() && client.getTickCount() - predictionTick > PREDICTION_TIMEOUT_TICKS)
+		{
+			session.expirePredictions();
+			scheduler.request();
+		}
+
+		if (session != null && session.isApplying())
+		{
+			if (!scheduler.isDirty())
+			{
+				continueApply(session);
+				return;
+			}
+
+			// Superseded by a newer trigger before it was fully applied
+			session.cancelApply();
+		}
+
+		// A plan computed while triggers arrive is discarded, so the next one starts once it is done
+		if (!scheduler.isDirty() || computing != null)
+		{
+			return;
+		}
+
+		if (session != null)
+		{
+			scheduler.runPending(relayout);
+		}
+		else
+		{
+			scheduler.markApplied();
 		}
 	}
 
 	@Subscribe
 	public void onConfigChanged(ConfigChanged configChanged)
 	{
-		if (pohStorageLoaded() && configChanged.getGroup().equals(CONFIG_GROUP) && !configChanged.getKey().equals("showEmptySets") && !configChanged.getKey().equals("showPartialSets") && !configChanged.getKey().equals("showFullSets"))
+		if (!configChanged.getGroup().equals(CONFIG_GROUP))
 		{
-			clientThread.invokeLater(() ->
+			return;
+		}
+
+		loadSettings();
+		PohStoragePipeline.Stage stage = PohStorageSettings.getStage(configChanged.getKey());
+		PohStorageSession current = session;
+		if (stage != null && current != null)
+		{
+			// prepare finds the stages the changed setting feeds into by comparing its inputs, except for those it is not given
+			if (stage == PohStoragePipeline.Stage.SCAN)
 			{
-				if (titleCheck())
-				{
-					applyChanges();
-				}
-			});
+				current.requestRescan();
+			}
+			scheduler.request();
 		}
-		else if (configChanged.getGroup().equals(CONFIG_GROUP) && configChanged.getKey().equals("preserveFilters") && configChanged.getNewValue().equals("Never"))
+
+		if (configChanged.getKey().equals("preserveFilters") && settings.getPreserveFilters() == NEVER)
 		{
 			showEmpty = true;
 			showPartial = true;
@@ -221,7 +409,7 @@ public class PohStoragePlugin extends Plugin
 
 	public void loadConfig()
 	{
-		if (config.preserveFilters() == ACROSS_SESSIONS)
+		if (settings.getPreserveFilters() == ACROSS_SESSIONS)
 		{
 			showEmpty = config.showEmptySets();
 			showPartial = config.showPartialSets();
@@ -229,114 +417,363 @@ public class PohStoragePlugin extends Plugin
 		}
 	}
 
+	/**
+	 * Takes a new snapshot of the config, recompiling the filter only when its query changed.
+	 */
+	private void loadSettings()
+	{
+		PohStorageSettings previous = settings;
+		String query = config.filterQuery();
+		PohStorageFilter filter = previous != null && previous.getFilterQuery().equals(query) ? previous.getFilter()
+			: compileFilter(query, previous != null ? previous.getFilter() : PohStorageFilter.ALL);
+		settings = PohStorageSettings.from(config, filter);
+	}
+
+	/**
+	 * Converts a shade color saved as one of the former fixed choices into its RGB value.
+	 */
+	private void migrateShadeColor(String legacyKey, String key)
+	{
+		String legacy = configManager.getConfiguration(CONFIG_GROUP, legacyKey);
+		if (legacy == null)
+		{
+			return;
+		}
+
+		Color color;
+		switch (legacy)
+		{
+			case "PURPLE":
+				color = new Color(0xa349a4);
+				break;
+			case "BLUE":
+				color = new Color(0x007fff);
+				break;
+			case "GREEN":
+				color = new Color(0x00ff00);
+				break;
+			case "YELLOW":
+				color = new Color(0xffd700);
+				break;
+			case "ORANGE":
+				color = new Color(0xff7f27);
+				break;
+			case "RED":
+				color = new Color(0xd45656);
+				break;
+			default:
+				color = new Color(0, 0, 0, 0);
+				break;
+		}
+		configManager.setConfiguration(CONFIG_GROUP, key, color);
+		configManager.unsetConfiguration(CONFIG_GROUP, legacyKey);
+	}
+
+	/**
+	 * Compiles {@code query}, keeping {@code fallback}, the last valid filter, while it does not parse. The parse error
+	 * is shown in the chat once, not again for every edit that leaves it unchanged.
+	 */
+	private PohStorageFilter compileFilter(String query, PohStorageFilter fallback)
+	{
+		try
+		{
+			PohStorageFilter filter = PohStorageFilter.compile(query);
+			reportedFilterError = null;
+			return filter;
+		}
+		catch (IllegalArgumentException e)
+		{
+			if (!e.getMessage().equals(reportedFilterError))
+			{
+				reportedFilterError = e.getMessage();
+				chatMessageManager.queue(QueuedMessage.builder()
+					.type(ChatMessageType.CONSOLE)
+					.runeLiteFormattedMessage("POH Storage filter not applied, keeping the previous one: " + Text.escapeJagex(e.getMessage()))
+					.build());
+			}
+			return fallback;
+		}
+	}
+
 	public void applyChanges()
 	{
-		resetWidgets();
-		updateWidgetLists();
-		adjustWidgets();
+		if (computing != null)
+		{
+			scheduler.request();
+			return;
+		}
+
+		// Shade sprites are generated the first time a unit is opened with their color
+		PohStorageSettings currentSettings = settings;
+		if (currentSettings != spriteSettings)
+		{
+			setSprites[SET_TYPE_EMPTY] = shadeSprites.getSpriteId(currentSettings.getEmptySetShade());
+			setSprites[SET_TYPE_PARTIAL] = shadeSprites.getSpriteId(currentSettings.getPartialSetShade());
+			setSprites[SET_TYPE_FULL] = shadeSprites.getSpriteId(currentSettings.getFullSetShade());
+			spriteSettings = currentSettings;
+		}
+
+		PohStorageSession current = session;
+		if (!current.prepare(showEmpty, showPartial, showFull, currentSettings.getFilter(), currentSettings.getSortOrder().getOrder(), setSprites, currentSettings.getShadeOpacity(), currentSettings.isVirtualizeLayout(), currentSettings.getViewportMargin()))
+		{
+			return;
+		}
+
+		computing = current;
+		layoutExecutor.execute(computeChanges);
 	}
 
-	private boolean pohStorageLoaded()
+	private void computeChanges()
 	{
-		return client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER) != null && client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER) != null;
+		PohStorageSession current = computing;
+		try
+		{
+			current.compute();
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Failed to compute the POH Storage layout", e);
+			current.requestRescan();
+			scheduler.request();
+		}
+		finally
+		{
+			clientThread.invokeLater(finishChanges);
+		}
 	}
 
-	private boolean titleCheck()
+	private void finishChanges()
 	{
-		return TITLES.contains(client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER).getDynamicChildren()[1].getText().split(TITLE_REGEX)[0].trim());
+		PohStorageSession computed = computing;
+		computing = null;
+
+		// Superseded by a newer trigger, whose relayout starts on the next tick
+		if (computed != session || scheduler.isDirty())
+		{
+			computed.discard();
+			return;
+		}
+
+		computed.beginApply();
+		continueApply(computed);
 	}
 
-	private void updateWidgetHeight(int adjustment)
+	/**
+	 * Applies the next slice of the plan being applied, spreading large plans over several ticks.
+	 */
+	private void continueApply(PohStorageSession applying)
 	{
-		Widget contentContainer = client.getWidget(STORAGE_GROUP_ID, STORAGE_CONTENT_CONTAINER);
-		contentContainer.setOriginalHeight(contentContainer.getOriginalHeight() + adjustment);
-		contentContainer.revalidate();
+		if (!applying.applySlice(settings.getApplyBudget()))
+		{
+			return;
+		}
 
-		client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER).revalidate();
+		refreshSearchPanel();
+	}
 
-		Widget scrollbar = client.getWidget(STORAGE_GROUP_ID, STORAGE_SCROLLBAR);
-		scrollbar.revalidate();
-		for (Widget scrollChild : scrollbar.getDynamicChildren())
+	/**
+	 * Refreshes the search panel on the event dispatch thread once the search index changed since it last was.
+	 */
+	private void refreshSearchPanel()
+	{
+		if (searchIndex.getRevision() != searchRevision)
 		{
-			scrollChild.revalidate();
+			searchRevision = searchIndex.getRevision();
+			SwingUtilities.invokeLater(refreshSearch);
 		}
 	}
 
-	private void resetWidgets()
+	/**
+	 * Waits for the plan being computed on {@code executor}, if any, so the session can be reset on the client thread.
+	 */
+	private void awaitComputation(ExecutorService executor)
 	{
-		for (PohStorageSet storageSet : storageSets)
+		if (computing == null)
 		{
-			for (PohStorageWidget storageWidget : storageSet.getAll())
-			{
-				storageWidget.getWidget().setOriginalX(storageWidget.getOriginalX());
-				storageWidget.getWidget().setOriginalY(storageWidget.getOriginalY());
-				storageWidget.getWidget().setHidden(storageWidget.isOriginalHidden());
+			return;
+		}
 
-				if (!storageWidget.isIcon())
-				{
-					storageWidget.getWidget().setOpacity(storageWidget.getOriginalOpacity());
-					storageWidget.getWidget().setSpriteId(storageWidget.getOriginalSpriteId());
-					storageWidget.getWidget().setOriginalWidth(storageWidget.getOriginalWidth());
-					storageWidget.getWidget().setWidthMode(storageWidget.getOriginalWidthMode());
-					storageWidget.getWidget().setXPositionMode(storageWidget.getOriginalXPositionMode());
-				}
+		// The layout thread runs its tasks in order, so the computation is done once a task queued after it runs
+		try
+		{
+			executor.submit(() -> {}).get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			log.warn("Failed to wait for the POH Storage layout", e);
+		}
+	}
 
-				storageWidget.getWidget().revalidate();
-			}
+	private void openSession()
+	{
+		Widget titleContainer = client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER);
+		Widget itemContainer = client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER);
+		if (titleContainer == null || itemContainer == null)
+		{
+			return;
+		}
+
+		Widget[] titleChildren = titleContainer.getDynamicChildren();
+		PohStorageUnit unit = titleChildren.length > 1 ? PohStorageUnit.fromTitle(titleChildren[1].getText()) : null;
+		if (unit == null)
+		{
+			return;
 		}
 
-		for (PohStorageWidget junk : junkWidgets)
+		// The bank container outlives the bank interface, so pieces banked before the plugin started are flagged too
+		ItemContainer bankContainer = client.getItemContainer(InventoryID.BANK);
+		if (bankContainer != null)
 		{
-			junk.getWidget().setOriginalX(junk.getOriginalX());
-			junk.getWidget().revalidate();
+			bank.update(bankContainer.getItems());
 		}
 
-		for (Widget addedDivider : addedDividers)
+		closeSession();
+		session = new PohStorageSession(client, openCatalog(unit), searchIndex, bank, metrics, unit, titleContainer, client.getWidget(STORAGE_GROUP_ID, STORAGE_CONTENT_CONTAINER), itemContainer, client.getWidget(STORAGE_GROUP_ID, STORAGE_SCROLLBAR));
+		log.debug("Opened {}", unit.getTitle());
+
+		addControls();
+		session.adjustHeight(CONTAINER_HEIGHT_ADJUSTMENT);
+		scheduler.markApplied();
+		applyChanges();
+	}
+
+	private void closeSession()
+	{
+		if (session != null)
 		{
-			addedDivider.setHidden(true);
-			addedDivider.revalidate();
+			session.close();
+			session = null;
 		}
+	}
 
-		Widget container = client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER);
+	private PohStorageCatalog openCatalog(PohStorageUnit unit)
+	{
+		long accountHash = client.getAccountHash();
+		if (accountHash == -1)
+		{
+			return null;
+		}
 
-		container.setScrollHeight(originalScroll);
-		container.revalidateScroll();
+		Path file = RuneLite.RUNELITE_DIR.toPath()
+			.resolve(CATALOG_DIRECTORY)
+			.resolve(Long.toString(accountHash))
+			.resolve(unit.name().toLowerCase(Locale.ROOT) + ".bin");
+		return new PohStorageCatalog(file);
+	}
 
-		client.runScript(
-			ScriptID.UPDATE_SCROLLBAR,
-			STORAGE_GROUP_ID << 16 | STORAGE_SCROLLBAR,
-			STORAGE_GROUP_ID << 16 | STORAGE_ITEM_CONTAINER,
-			container.getScrollY()
-		);
+	/**
+	 * Indexes the catalogs of every unit for the logged in account, so they can be searched without being opened.
+	 */
+	private void loadCatalogs()
+	{
+		long accountHash = client.getAccountHash();
+		if (accountHash == -1 || accountHash == indexedAccount)
+		{
+			return;
+		}
+
+		indexedAccount = accountHash;
+		searchIndex.clear();
+		PohStorageModel catalogModel = new PohStorageModel();
+		for (PohStorageUnit unit : PohStorageUnit.values())
+		{
+			PohStorageCatalog catalog = openCatalog(unit);
+			if (catalog.read(catalogModel) && catalogModel.scan())
+			{
+				searchIndex.update(unit, catalogModel, catalog::getItemId);
+			}
+			catalog.close();
+		}
+		refreshSearchPanel();
 	}
 
-	private void updateWidgetLists()
+	private void requestRescan()
 	{
-		storageSets = new ArrayList<PohStorageSet>();
-		junkWidgets = new ArrayList<PohStorageWidget>();
-		addedDividers = new ArrayList<Widget>();
+		PohStorageSession current = session;
+		if (current != null)
+		{
+			current.requestRescan();
+		}
+		scheduler.request();
+	}
 
-		for (Widget widgetItem : client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER).getDynamicChildren())
+	private boolean updateInventory(Item[] items)
+	{
+		nextInventory.clear();
+		for (Item item : items)
+		{
+			if (item.getId() >= 0)
+			{
+				nextInventory.addCount(item.getId(), item.getQuantity());
+			}
+		}
+
+		boolean relevant = false;
+		for (int slot = 0; slot < nextInventory.capacity(); slot++)
+		{
+			if (nextInventory.isOccupied(slot) && nextInventory.valueAt(slot) != inventory.get(nextInventory.keyAt(slot), 0))
+			{
+				relevant |= markItemChanged(nextInventory.keyAt(slot));
+			}
+		}
+		for (int slot = 0; slot < inventory.capacity(); slot++)
 		{
-			if (widgetItem.getType() == WidgetType.TEXT)
+			if (inventory.isOccupied(slot) && !nextInventory.containsKey(inventory.keyAt(slot)))
 			{
-				storageSets.add(newPohStorageSet(widgetItem));
+				relevant |= markItemChanged(inventory.keyAt(slot));
 			}
-			else if (widgetItem.getWidth() == WIDGET_DIVIDER_WIDTH)
+		}
+
+		PohItemMap swap = inventory;
+		inventory = nextInventory;
+		nextInventory = swap;
+		return relevant;
+	}
+
+	private boolean updateBank(Item[] items)
+	{
+		if (!bank.update(items))
+		{
+			return false;
+		}
+
+		PohStorageSession current = session;
+		boolean relevant = false;
+		for (int i = 0; i < bank.getChangedCount() && current != null; i++)
+		{
+			relevant |= current.markBankChanged(bank.getChanged(i));
+		}
+		return relevant;
+	}
+
+	private boolean isDepositOption(String option)
+	{
+		for (String depositOption : DEPOSIT_OPTIONS)
+		{
+			if (option != null && option.startsWith(depositOption))
 			{
-				junkWidgets.add(newPohStorageWidget(widgetItem));
-				widgetItem.setOriginalX(-100);
-				widgetItem.revalidate();
+				return true;
 			}
 		}
+		return false;
+	}
+
+	private boolean markItemChanged(int itemId)
+	{
+		PohStorageSession current = session;
+		return current != null && current.markItemChanged(itemId);
 	}
 
 	private void addControls()
 	{
 		if (emptyTitle == null || emptyCheck == null)
 		{
-			emptyTitle = addControlTitle(client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER), SET_TYPE_EMPTY, "Empty Sets");
-			emptyCheck = addControlCheckbox(client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER), SET_TYPE_EMPTY, "Empty Sets", showEmpty);
+			emptyTitle = addControlTitle(session.getTitleContainer(), SET_TYPE_EMPTY, "Empty Sets");
+			emptyCheck = addControlCheckbox(session.getTitleContainer(), SET_TYPE_EMPTY, "Empty Sets", showEmpty);
 		}
 		else
 		{
@@ -346,8 +783,8 @@ public class PohStoragePlugin extends Plugin
 
 		if (partialTitle == null || partialCheck == null)
 		{
-			partialTitle = addControlTitle(client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER), SET_TYPE_PARTIAL, "Partial Sets");
-			partialCheck = addControlCheckbox(client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER), SET_TYPE_PARTIAL, "Partial Sets", showPartial);
+			partialTitle = addControlTitle(session.getTitleContainer(), SET_TYPE_PARTIAL, "Partial Sets");
+			partialCheck = addControlCheckbox(session.getTitleContainer(), SET_TYPE_PARTIAL, "Partial Sets", showPartial);
 		}
 		else
 		{
@@ -357,8 +794,8 @@ public class PohStoragePlugin extends Plugin
 
 		if (fullTitle == null || fullCheck == null)
 		{
-			fullTitle = addControlTitle(client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER), SET_TYPE_FULL, "Full Sets");
-			fullCheck = addControlCheckbox(client.getWidget(STORAGE_GROUP_ID, STORAGE_TITLE_CONTAINER), SET_TYPE_FULL, "Full Sets", showFull);
+			fullTitle = addControlTitle(session.getTitleContainer(), SET_TYPE_FULL, "Full Sets");
+			fullCheck = addControlCheckbox(session.getTitleContainer(), SET_TYPE_FULL, "Full Sets", showFull);
 		}
 		else
 		{
@@ -409,12 +846,15 @@ public class PohStoragePlugin extends Plugin
 		}
 
 		toggle.setOnOpListener((JavaScriptCallback) ev -> toggle(toggle, tooltip, !show));
-		applyChanges();
+
+		// Only the filter changed, so a recently seen combination is served from the plan cache
+		scheduler.request();
 	}
 
 	private Widget addControlTitle(Widget parentWidget, int index, String title)
 	{
 		Widget titleWidget = parentWidget.createChild(-1, WidgetType.TEXT);
+		metrics.count(PohStorageMetrics.Counter.CREATED, 1);
 		titleWidget.setText(title);
 		titleWidget.setOriginalWidth(CONTROL_TITLE_WIDTH);
 		titleWidget.setOriginalHeight(CONTROL_TITLE_HEIGHT);
@@ -430,6 +870,7 @@ public class PohStoragePlugin extends Plugin
 	private Widget addControlCheckbox(Widget parentWidget, int index, String tooltip, boolean show)
 	{
 		Widget checkWidget = parentWidget.createChild(-1, WidgetType.GRAPHIC);
+		metrics.count(PohStorageMetrics.Counter.CREATED, 1);
 		checkWidget.setOriginalWidth(CONTROL_CHECKBOX_WIDTH);
 		checkWidget.setOriginalHeight(CONTROL_CHECKBOX_HEIGHT);
 		checkWidget.setOriginalY(CONTROL_Y - 2);
@@ -457,244 +898,4 @@ public class PohStoragePlugin extends Plugin
 		return checkWidget;
 	}
 
-	private void addDivider(int y)
-	{
-		Widget parent = client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER);
-		Widget child = parent.createChild(-1, WidgetType.GRAPHIC);
-		child.setOriginalWidth(WIDGET_DIVIDER_WIDTH);
-		child.setOriginalHeight(WIDGET_SET_HEIGHT - WIDGET_OFFSET);
-		child.setOriginalX(WIDGET_SET_WIDTH - WIDGET_DIVIDER_WIDTH);
-		child.setOriginalY(y);
-		child.setSpriteId(SpriteID.UNKNOWN_BORDER_EDGE_VERTICAL);
-		child.setSpriteTiling(true);
-		child.revalidate();
-		addedDividers.add(child);
-	}
-
-	private void adjustWidgets()
-	{
-		int normalOpacity = config.shadeOpacity();
-		int hoverOpacity = (normalOpacity > 20) ? normalOpacity - 20 : 0;
-		int x = 0;
-		int top = 0;
-
-		List<PohStorageSet> hideSets = new ArrayList<PohStorageSet>();
-		List<PohStorageSet> adjustSets = new ArrayList<PohStorageSet>();
-
-		for (PohStorageSet storageSet : storageSets)
-		{
-			if ((storageSet.getType() == SET_TYPE_EMPTY && !showEmpty) || (storageSet.getType() == SET_TYPE_PARTIAL && !showPartial) || (storageSet.getType() == SET_TYPE_FULL && !showFull))
-			{
-				hideSets.add(storageSet);
-			}
-			else
-			{
-				adjustSets.add(storageSet);
-			}
-		}
-
-		Collections.sort(adjustSets);
-
-		// Hide unwanted widgets
-		for (PohStorageSet storageSet : hideSets)
-		{
-			for (Widget hideWidget : storageSet.getAllWidgets())
-			{
-				hideWidget.setHidden(true);
-			}
-		}
-
-		// Adjust others
-		for (int i = 0; i < adjustSets.size(); i++)
-		{
-			int finalI = i;
-
-			top = x * WIDGET_SET_HEIGHT;
-			x++;
-
-			if (i > 0 && adjustSets.get(i - 1).isCollapsible() && adjustSets.get(i - 1).getColumn() == 1 && adjustSets.get(i).isCollapsible())
-			{
-
-				// Right Half
-				adjustSets.get(i).setColumn(2);
-				x--;
-				top -= WIDGET_SET_HEIGHT;
-
-				adjustSets.get(i).getOutline().getWidget().setOriginalWidth(WIDGET_SET_WIDTH);
-				adjustSets.get(i).getOutline().getWidget().setWidthMode(WidgetSizeMode.MINUS);
-				adjustSets.get(i).getOutline().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_RIGHT);
-
-				adjustSets.get(i).getHeader().getWidget().setOriginalWidth(WIDGET_SET_WIDTH - WIDGET_OFFSET);
-				adjustSets.get(i).getHeader().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_LEFT);
-				adjustSets.get(i).getHeader().getWidget().setWidthMode(WidgetSizeMode.ABSOLUTE);
-				adjustSets.get(i).getHeader().getWidget().setOriginalX(WIDGET_SET_WIDTH + WIDGET_OFFSET);
-
-				adjustSets.get(i).getFooter().getWidget().setOriginalWidth(WIDGET_SET_WIDTH);
-				adjustSets.get(i).getFooter().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_RIGHT);
-				adjustSets.get(i).getFooter().getWidget().setWidthMode(WidgetSizeMode.MINUS);
-
-				adjustSets.get(i).getArrow().getWidget().setOriginalX(WIDGET_OFFSET);
-
-				shiftIcons(adjustSets.get(i).getWidgetItems(), WIDGET_SET_WIDTH + WIDGET_OFFSET, top + WIDGET_ICON_TOP_OFFSET);
-				addDivider(top);
-
-			}
-			else if (i < adjustSets.size() - 1 && adjustSets.get(i).isCollapsible() && adjustSets.get(i + 1).isCollapsible())
-			{
-
-				// Left Half
-				adjustSets.get(i).getOutline().getWidget().setOriginalWidth(WIDGET_SET_WIDTH);
-				adjustSets.get(i).getOutline().getWidget().setWidthMode(WidgetSizeMode.ABSOLUTE);
-				adjustSets.get(i).getOutline().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_LEFT);
-
-				adjustSets.get(i).getHeader().getWidget().setOriginalWidth(WIDGET_SET_WIDTH - WIDGET_OFFSET);
-				adjustSets.get(i).getHeader().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_LEFT);
-				adjustSets.get(i).getHeader().getWidget().setWidthMode(WidgetSizeMode.ABSOLUTE);
-				adjustSets.get(i).getHeader().getWidget().setOriginalX(WIDGET_OFFSET);
-
-				adjustSets.get(i).getFooter().getWidget().setOriginalWidth(WIDGET_SET_WIDTH);
-				adjustSets.get(i).getFooter().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_LEFT);
-				adjustSets.get(i).getFooter().getWidget().setWidthMode(WidgetSizeMode.ABSOLUTE);
-
-				adjustSets.get(i).getArrow().getWidget().setOriginalX(WIDGET_SET_WIDTH + 2 * WIDGET_OFFSET);
-
-				shiftIcons(adjustSets.get(i).getWidgetItems(), WIDGET_OFFSET, top + WIDGET_ICON_TOP_OFFSET);
-
-			}
-			else
-			{
-
-				// Full Width
-				adjustSets.get(i).getOutline().getWidget().setOriginalWidth(0);
-				adjustSets.get(i).getOutline().getWidget().setWidthMode(WidgetSizeMode.MINUS);
-				adjustSets.get(i).getOutline().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_CENTER);
-
-				adjustSets.get(i).getHeader().getWidget().setOriginalWidth(WIDGET_OFFSET);
-				adjustSets.get(i).getHeader().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_RIGHT);
-				adjustSets.get(i).getHeader().getWidget().setWidthMode(WidgetSizeMode.MINUS);
-				adjustSets.get(i).getHeader().getWidget().setOriginalX(0);
-
-				adjustSets.get(i).getFooter().getWidget().setOriginalWidth(0);
-				adjustSets.get(i).getFooter().getWidget().setXPositionMode(WidgetPositionMode.ABSOLUTE_CENTER);
-				adjustSets.get(i).getFooter().getWidget().setWidthMode(WidgetSizeMode.MINUS);
-
-				adjustSets.get(i).getArrow().getWidget().setOriginalX(WIDGET_OFFSET);
-
-				shiftIcons(adjustSets.get(i).getWidgetItems(), WIDGET_OFFSET, top + WIDGET_ICON_TOP_OFFSET);
-
-			}
-
-			adjustSets.get(i).getOutline().getWidget().setOriginalY(top);
-
-			if (adjustSets.get(i).getType() == SET_TYPE_EMPTY && config.emptySetColor().getSpriteId() != 0)
-			{
-				adjustSets.get(i).getOutline().getWidget().setSpriteId(config.emptySetColor().getSpriteId());
-				adjustSets.get(i).getOutline().getWidget().setOpacity(normalOpacity);
-			}
-			else if (adjustSets.get(i).getType() == SET_TYPE_PARTIAL && config.partialSetColor().getSpriteId() != 0)
-			{
-				adjustSets.get(i).getOutline().getWidget().setSpriteId(config.partialSetColor().getSpriteId());
-				adjustSets.get(i).getOutline().getWidget().setOpacity(normalOpacity);
-
-				adjustSets.get(i).getOutline().getWidget().setOnMouseRepeatListener((JavaScriptCallback) ev -> adjustSets.get(finalI).getOutline().getWidget().setOpacity(hoverOpacity));
-				adjustSets.get(i).getOutline().getWidget().setOnMouseLeaveListener((JavaScriptCallback) ev -> adjustSets.get(finalI).getOutline().getWidget().setOpacity(normalOpacity));
-			}
-			else if (adjustSets.get(i).getType() == SET_TYPE_FULL && config.fullSetColor().getSpriteId() != 0)
-			{
-				adjustSets.get(i).getOutline().getWidget().setSpriteId(config.fullSetColor().getSpriteId());
-				adjustSets.get(i).getOutline().getWidget().setOpacity(normalOpacity);
-				adjustSets.get(i).getOutline().getWidget().setOnMouseRepeatListener((JavaScriptCallback) ev -> adjustSets.get(finalI).getOutline().getWidget().setOpacity(hoverOpacity));
-				adjustSets.get(i).getOutline().getWidget().setOnMouseLeaveListener((JavaScriptCallback) ev -> adjustSets.get(finalI).getOutline().getWidget().setOpacity(normalOpacity));
-			}
-
-			adjustSets.get(i).getOutline().getWidget().revalidate();
-
-			adjustSets.get(i).getHeader().getWidget().setOriginalY(top);
-			adjustSets.get(i).getHeader().getWidget().revalidate();
-
-			adjustSets.get(i).getArrow().getWidget().setOriginalY(top + 5);
-			adjustSets.get(i).getArrow().getWidget().revalidate();
-
-			adjustSets.get(i).getFooter().getWidget().setOriginalY(top + 40);
-			adjustSets.get(i).getFooter().getWidget().revalidate();
-		}
-
-		Widget container = client.getWidget(STORAGE_GROUP_ID, STORAGE_ITEM_CONTAINER);
-
-		int y = x * WIDGET_SET_HEIGHT - WIDGET_OFFSET;
-		if (container.getHeight() > y)
-		{
-			y = 0;
-		}
-
-		container.setScrollHeight(y);
-		container.revalidateScroll();
-
-		client.runScript(
-			ScriptID.UPDATE_SCROLLBAR,
-			STORAGE_GROUP_ID << 16 | STORAGE_SCROLLBAR,
-			STORAGE_GROUP_ID << 16 | STORAGE_ITEM_CONTAINER,
-			container.getScrollY()
-		);
-	}
-
-	private void shiftIcons(List<Widget> items, int adjustmentX, int finalY)
-	{
-		for (int j = 0; j < items.size(); j++)
-		{
-			items.get(j).setOriginalX((WIDGET_ICON_WIDTH + 2 * WIDGET_OFFSET) * j + adjustmentX);
-			items.get(j).setOriginalY(finalY);
-			items.get(j).revalidate();
-		}
-	}
-
-	private PohStorageWidget newPohStorageWidget(Widget widget)
-	{
-		return new PohStorageWidget(widget, widget.getId(), widget.getOriginalX(), widget.getOriginalY(), widget.getOriginalWidth(), widget.getOpacity(), widget.getSpriteId(), widget.isHidden(), widget.getWidthMode(), widget.getXPositionMode());
-	}
-
-	private PohStorageSet newPohStorageSet(Widget headerWidget)
-	{
-		int textId = headerWidget.getIndex();
-
-		// Create building blocks
-		PohStorageWidget outline = newPohStorageWidget(headerWidget.getParent().getChild(textId - 3));
-		PohStorageWidget arrow = newPohStorageWidget(headerWidget.getParent().getChild(textId - 2));
-		PohStorageWidget footer = newPohStorageWidget(headerWidget.getParent().getChild(textId - 1));
-		PohStorageWidget header = newPohStorageWidget(headerWidget);
-
-		// Get item widgets
-		int stored = 0;
-		int offset = 1;
-		List<PohStorageWidget> items = new ArrayList<PohStorageWidget>();
-		while (headerWidget.getParent().getChild(textId + offset).getWidth() == WIDGET_ICON_WIDTH)
-		{
-			if (!headerWidget.getParent().getChild(textId + offset).isHidden())
-			{
-				items.add(newPohStorageWidget(headerWidget.getParent().getChild(textId + offset)));
-				if (headerWidget.getParent().getChild(textId + offset).getOpacity() == 0)
-				{
-					stored++;
-				}
-			}
-			offset++;
-		}
-
-		int type;
-		if (stored == items.size())
-		{
-			type = SET_TYPE_FULL;
-		}
-		else if (stored == 0)
-		{
-			type = SET_TYPE_EMPTY;
-		}
-		else
-		{
-			type = SET_TYPE_PARTIAL;
-		}
-
-		return new PohStorageSet(outline, arrow, footer, header, items, headerWidget.getText(), type, items.size() <= MAX_HALF_SET);
-	}
-
 }
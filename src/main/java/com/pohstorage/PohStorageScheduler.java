@@ -0,0 +1,61 @@
+package com.pohstorage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PohStorageScheduler
+{
+	private final AtomicInteger generation = new AtomicInteger();
+	private final AtomicInteger requested = new AtomicInteger();
+	private int appliedGeneration;
+	private int executed;
+
+	public void request()
+	{
+		requested.incrementAndGet();
+		generation.incrementAndGet();
+	}
+
+	public boolean isDirty()
+	{
+		return generation.get() != appliedGeneration;
+	}
+
+	/**
+	 * Runs {@code relayout} once if any trigger arrived since the last run. Triggers that arrive while it runs
+	 * leave the scheduler dirty for the next tick.
+	 */
+	public boolean runPending(Runnable relayout)
+	{
+		int pending = generation.get();
+		if (pending == appliedGeneration)
+		{
+			return false;
+		}
+
+		appliedGeneration = pending;
+		executed++;
+		relayout.run();
+		return true;
+	}
+
+	public void markApplied()
+	{
+		appliedGeneration = generation.get();
+	}
+
+	public int getRequested()
+	{
+		return requested.get();
+	}
+
+	public int getExecuted()
+	{
+		return executed;
+	}
+
+	public void resetCounters()
+	{
+		requested.set(0);
+		executed = 0;
+	}
+}
@@ -0,0 +1,279 @@
+package com.pohstorage;
+
+import net.runelite.client.util.Text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Item search across every storage unit, backed by an inverted index from the 1 to 3 character n-grams of item names
+ * to the items holding them. Units are indexed from their scans (or catalogs) on the client thread and searched
+ * from any thread.
+ */
+public class PohStorageSearchIndex
+{
+	private static final int MAX_GRAM = 3;
+	private static final int[] EMPTY = new int[0];
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final AtomicReferenceArray<UnitIndex> units = new AtomicReferenceArray<UnitIndex>(PohStorageUnit.values().length);
+	private final Map<Integer, String> itemNames = new HashMap<Integer, String>();
+	private final IntFunction<String> itemNameLookup;
+	// Counts the changes to the indexed contents, only changed on the client thread
+	private int revision;
+
+	public PohStorageSearchIndex(IntFunction<String> itemNameLookup)
+	{
+		this.itemNameLookup = itemNameLookup;
+	}
+
+	/**
+	 * Replaces the indexed contents of {@code unit} with the visible items of the sets in {@code model}. When the set
+	 * names and items are those already indexed, as on most rescans, only their stored states are updated.
+	 */
+	public void update(PohStorageUnit unit, PohStorageModel model, IntUnaryOperator itemIdAt)
+	{
+		int entries = 0;
+		long contents = FNV_OFFSET;
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			entries += model.getItemCount(set);
+			contents = mix(contents, model.getName(set) == null ? 0 : model.getName(set).hashCode());
+			contents = mix(contents, model.getItemCount(set));
+			for (int item = 0; item < model.getItemCount(set); item++)
+			{
+				contents = mix(contents, itemIdAt.applyAsInt(model.getItem(set, item)));
+			}
+		}
+
+		UnitIndex indexed = units.get(unit.ordinal());
+		if (indexed != null && indexed.contents == contents && indexed.stored.length == entries)
+		{
+			for (int set = 0; set < model.getSetCount(); set++)
+			{
+				for (int item = 0; item < model.getItemCount(set); item++)
+				{
+					setStored(unit, set, item, model.getChildOpacity(model.getItem(set, item)) == 0);
+				}
+			}
+			return;
+		}
+
+		UnitIndex index = new UnitIndex(model.getSetCount(), entries, contents);
+		Map<Long, int[]> postings = new HashMap<Long, int[]>();
+		Map<Long, Integer> postingSizes = new HashMap<Long, Integer>();
+		Set<Long> grams = new HashSet<Long>();
+
+		int entry = 0;
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			index.setStart[set] = entry;
+			String setName = Text.removeTags(model.getName(set));
+			for (int item = 0; item < model.getItemCount(set); item++)
+			{
+				int i = model.getItem(set, item);
+				int itemId = itemIdAt.applyAsInt(i);
+				String itemName = itemName(itemId);
+				index.setNames[entry] = setName;
+				index.itemIds[entry] = itemId;
+				index.itemNames[entry] = itemName;
+				index.keys[entry] = itemName.toLowerCase(Locale.ROOT);
+				index.stored[entry] = model.getChildOpacity(i) == 0;
+
+				grams.clear();
+				collectGrams(index.keys[entry], grams);
+				for (Long gram : grams)
+				{
+					int size = postingSizes.getOrDefault(gram, 0);
+					int[] posting = postings.getOrDefault(gram, EMPTY);
+					if (size == posting.length)
+					{
+						posting = Arrays.copyOf(posting, Math.max(4, size * 2));
+						postings.put(gram, posting);
+					}
+					posting[size] = entry;
+					postingSizes.put(gram, size + 1);
+				}
+				entry++;
+			}
+		}
+
+		for (Map.Entry<Long, int[]> posting : postings.entrySet())
+		{
+			index.grams.put(posting.getKey(), Arrays.copyOf(posting.getValue(), postingSizes.get(posting.getKey())));
+		}
+		units.set(unit.ordinal(), index);
+		revision++;
+	}
+
+	/**
+	 * Updates the stored state of one item of a set already indexed for {@code unit}.
+	 */
+	public void setStored(PohStorageUnit unit, int set, int item, boolean stored)
+	{
+		UnitIndex index = units.get(unit.ordinal());
+		if (index != null && set < index.setStart.length && index.setStart[set] + item < index.stored.length
+			&& index.stored[index.setStart[set] + item] != stored)
+		{
+			index.stored[index.setStart[set] + item] = stored;
+			revision++;
+		}
+	}
+
+	public void clear()
+	{
+		for (int i = 0; i < units.length(); i++)
+		{
+			units.set(i, null);
+		}
+		itemNames.clear();
+		revision++;
+	}
+
+	/**
+	 * Changes whenever the indexed contents do, so searches shown at an unchanged revision are still current.
+	 */
+	public int getRevision()
+	{
+		return revision;
+	}
+
+	/**
+	 * Finds up to {@code limit} items whose names contain {@code query}, names starting with it first.
+	 */
+	public List<PohStorageSearchResult> search(String query, int limit)
+	{
+		List<PohStorageSearchResult> prefixMatches = new ArrayList<PohStorageSearchResult>();
+		List<PohStorageSearchResult> matches = new ArrayList<PohStorageSearchResult>();
+		String key = query.trim().toLowerCase(Locale.ROOT);
+		if (key.isEmpty())
+		{
+			return matches;
+		}
+
+		for (PohStorageUnit unit : PohStorageUnit.values())
+		{
+			UnitIndex index = units.get(unit.ordinal());
+			if (index == null)
+			{
+				continue;
+			}
+
+			for (int entry : index.candidates(key))
+			{
+				int position = index.keys[entry].indexOf(key);
+				if (position < 0)
+				{
+					continue;
+				}
+
+				PohStorageSearchResult result = new PohStorageSearchResult(unit, index.setNames[entry], index.itemIds[entry], index.itemNames[entry], index.stored[entry]);
+				if (position == 0 || index.keys[entry].charAt(position - 1) == ' ')
+				{
+					prefixMatches.add(result);
+				}
+				else
+				{
+					matches.add(result);
+				}
+			}
+		}
+
+		prefixMatches.addAll(matches);
+		return prefixMatches.size() > limit ? prefixMatches.subList(0, limit) : prefixMatches;
+	}
+
+	private String itemName(int itemId)
+	{
+		String name = itemNames.get(itemId);
+		if (name == null)
+		{
+			name = itemNameLookup.apply(itemId);
+			itemNames.put(itemId, name == null ? "" : name);
+		}
+		return name == null ? "" : name;
+	}
+
+	private static void collectGrams(String key, Set<Long> grams)
+	{
+		for (int start = 0; start < key.length(); start++)
+		{
+			for (int length = 1; length <= MAX_GRAM && start + length <= key.length(); length++)
+			{
+				grams.add(gram(key, start, length));
+			}
+		}
+	}
+
+	private static long gram(String key, int start, int length)
+	{
+		long gram = length;
+		for (int i = start; i < start + length; i++)
+		{
+			gram = gram << 16 | key.charAt(i);
+		}
+		return gram;
+	}
+
+	private static long mix(long hash, int value)
+	{
+		return (hash ^ value) * FNV_PRIME;
+	}
+
+	private static final class UnitIndex
+	{
+		private final int[] setStart;
+		private final String[] setNames;
+		private final int[] itemIds;
+		private final String[] itemNames;
+		private final String[] keys;
+		private final boolean[] stored;
+		private final Map<Long, int[]> grams = new HashMap<Long, int[]>();
+		// Hash of the set names and item ids indexed
+		private final long contents;
+
+		private UnitIndex(int sets, int entries, long contents)
+		{
+			this.contents = contents;
+			setStart = new int[sets];
+			setNames = new String[entries];
+			itemIds = new int[entries];
+			itemNames = new String[entries];
+			keys = new String[entries];
+			stored = new boolean[entries];
+		}
+
+		/**
+		 * Entries that may contain {@code key}: the posting list of the key itself when it is short enough to be
+		 * indexed, otherwise the shortest posting list of its trigrams.
+		 */
+		private int[] candidates(String key)
+		{
+			if (key.length() <= MAX_GRAM)
+			{
+				return grams.getOrDefault(gram(key, 0, key.length()), EMPTY);
+			}
+
+			int[] candidates = null;
+			for (int start = 0; start + MAX_GRAM <= key.length(); start++)
+			{
+				int[] posting = grams.getOrDefault(gram(key, start, MAX_GRAM), EMPTY);
+				if (candidates == null || posting.length < candidates.length)
+				{
+					candidates = posting;
+				}
+			}
+			return candidates;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.pohstorage;
+
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.PluginPanel;
+import net.runelite.client.ui.components.IconTextField;
+
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.util.List;
+
+public class PohStorageSearchPanel extends PluginPanel
+{
+	private static final int MAX_RESULTS = 100;
+
+	private final PohStorageSearchIndex searchIndex;
+	private final IconTextField searchBar = new IconTextField();
+	private final JPanel resultsPanel = new JPanel();
+
+	public PohStorageSearchPanel(PohStorageSearchIndex searchIndex)
+	{
+		this.searchIndex = searchIndex;
+
+		setLayout(new BorderLayout(0, 6));
+		setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		setBackground(ColorScheme.DARK_GRAY_COLOR);
+
+		searchBar.setIcon(IconTextField.Icon.SEARCH);
+		searchBar.setPreferredSize(new Dimension(PluginPanel.PANEL_WIDTH - 20, 30));
+		searchBar.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+		searchBar.setHoverBackgroundColor(ColorScheme.DARK_GRAY_COLOR);
+		searchBar.getDocument().addDocumentListener(new DocumentListener()
+		{
+			@Override
+			public void insertUpdate(DocumentEvent e)
+			{
+				refresh();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e)
+			{
+				refresh();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e)
+			{
+				refresh();
+			}
+		});
+		searchBar.addClearListener(this::refresh);
+
+		resultsPanel.setLayout(new BoxLayout(resultsPanel, BoxLayout.Y_AXIS));
+		resultsPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+
+		add(searchBar, BorderLayout.NORTH);
+		add(resultsPanel, BorderLayout.CENTER);
+	}
+
+	/**
+	 * Reruns the current search; must be called on the Swing thread.
+	 */
+	public void refresh()
+	{
+		resultsPanel.removeAll();
+
+		String query = searchBar.getText();
+		if (query != null && !query.trim().isEmpty())
+		{
+			List<PohStorageSearchResult> results = searchIndex.search(query, MAX_RESULTS);
+			if (results.isEmpty())
+			{
+				resultsPanel.add(label("No matching items found", ColorScheme.LIGHT_GRAY_COLOR));
+			}
+			for (PohStorageSearchResult result : results)
+			{
+				resultsPanel.add(resultRow(result));
+			}
+		}
+
+		resultsPanel.revalidate();
+		resultsPanel.repaint();
+	}
+
+	private JPanel resultRow(PohStorageSearchResult result)
+	{
+		JPanel row = new JPanel(new GridLayout(2, 1));
+		row.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+		row.setBorder(BorderFactory.createCompoundBorder(
+			BorderFactory.createMatteBorder(0, 0, 2, 0, ColorScheme.DARK_GRAY_COLOR),
+			BorderFactory.createEmptyBorder(4, 6, 4, 6)
+		));
+
+		row.add(label(result.getItemName(), result.isStored() ? ColorScheme.PROGRESS_COMPLETE_COLOR : ColorScheme.LIGHT_GRAY_COLOR));
+		row.add(label(result.getUnit().getTitle() + " - " + result.getSetName() + (result.isStored() ? "" : " (missing)"), ColorScheme.LIGHT_GRAY_COLOR));
+		return row;
+	}
+
+	private static JLabel label(String text, Color color)
+	{
+		JLabel label = new JLabel(text);
+		label.setForeground(color);
+		return label;
+	}
+}
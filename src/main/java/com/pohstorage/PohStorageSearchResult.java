@@ -0,0 +1,15 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class PohStorageSearchResult
+{
+	private final PohStorageUnit unit;
+	private final String setName;
+	private final int itemId;
+	private final String itemName;
+	private final boolean stored;
+}
@@ -0,0 +1,836 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.SpriteID;
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import static com.pohstorage.PohStorageMetrics.Counter;
+import static com.pohstorage.PohStorageMetrics.Phase;
+import static com.pohstorage.PohStoragePipeline.Stage;
+import static com.pohstorage.PohStorageModel.*;
+
+/**
+ * One opening of a storage unit interface: the resolved widget handles, the unit type and all scan and layout state.
+ * It is dropped as a whole when the interface closes, so no widgets are retained afterwards.
+ */
+@Slf4j
+public class PohStorageSession
+{
+	private static final int SET_SHARED = -1;
+	private static final int SET_UNINDEXED = -2;
+	private static final int PLAN_CACHE_SIZE = 8;
+
+	private final PohStorageTransaction transaction;
+	private final PohStorageHover hover = new PohStorageHover();
+	private final PohStorageApplier applier = new PohStorageApplier();
+	private final PohStorageCatalog catalog;
+	private final PohStorageSearchIndex searchIndex;
+	// Read on the client thread only, by classification
+	private final PohItemCounts bank;
+	private final PohStorageMetrics metrics;
+	// What prepare and compute measured, recorded into the metrics on the client thread once the plan is taken or dropped
+	private final PohStorageMetrics.Batch computeMetrics = new PohStorageMetrics.Batch();
+	private final PohStoragePipeline pipeline;
+
+	@Getter
+	private final PohStorageUnit unit;
+
+	@Getter
+	private final Widget titleContainer;
+
+	@Getter
+	private final Widget contentContainer;
+
+	@Getter
+	private final Widget itemContainer;
+
+	@Getter
+	private final Widget scrollbar;
+
+	private final int originalScroll;
+	// The sets of the last scan, taken from views of the model's sets that are kept across scans
+	private final List<PohStorageSet> storageSets = new ArrayList<PohStorageSet>();
+	private final List<PohStorageSet> setViews = new ArrayList<PohStorageSet>();
+	private final List<Widget> addedDividers = new ArrayList<Widget>();
+	private final BitSet addedDividerIndexes = new BitSet();
+	private final PohStorageSnapshot snapshot = new PohStorageSnapshot();
+	// Preallocated so indexing a rescan for search allocates no lookup
+	private final IntUnaryOperator itemIdAt = snapshot::getItemId;
+	private final PohStorageModel model = new PohStorageModel();
+	private PohStorageLayout spareLayout = new PohStorageLayout(0);
+	private PohStorageLayout appliedLayout;
+	private final PohStoragePlanCache planCache = new PohStoragePlanCache(PLAN_CACHE_SIZE);
+	private final PohStoragePlanCache.Key planKey = new PohStoragePlanCache.Key();
+	private final PohItemMap itemIndex = new PohItemMap();
+	// Sets whose items changed, collected on the client thread and handed to the computation by prepare
+	private final BitSet changedSets = new BitSet();
+	private final BitSet dirtySets = new BitSet();
+	// Items a deposit predicts stored until the inventory confirms or refutes it, and the sets holding them
+	private final BitSet predictedItems = new BitSet();
+	private final BitSet settledItems = new BitSet();
+	private final BitSet predictedSets = new BitSet();
+	private final BitSet filterMatches = new BitSet();
+	private PohStorageFilter appliedFilter;
+
+	// Inputs and outputs of the relayout between prepare and apply; prepare marks the stages whose inputs changed
+	private final PohStorageDividers dividers = new PohStorageDividers();
+	private boolean showEmpty;
+	private boolean showPartial;
+	private boolean showFull;
+	private PohStorageFilter filter = PohStorageFilter.ALL;
+	private int sortOrder;
+	private final int[] setSprites = new int[3];
+	private int normalOpacity;
+	private int containerHeight;
+	private PohStorageLayout computedLayout;
+	private PohStorageLayout evictedLayout;
+	private boolean scrollForced;
+	private String loggedScanError;
+	private volatile boolean rescanRequired = true;
+	private boolean virtualized;
+	// From prepare until a plan is fully applied; a plan discarded or cancelled for a newer relayout leaves it set
+	private boolean relayoutPending;
+	private int windowTop;
+	private int windowBottom;
+
+	public PohStorageSession(Client client, PohStorageCatalog catalog, PohStorageSearchIndex searchIndex, PohItemCounts bank, PohStorageMetrics metrics, PohStorageUnit unit, Widget titleContainer, Widget contentContainer, Widget itemContainer, Widget scrollbar)
+	{
+		this.transaction = new PohStorageTransaction(client);
+		this.catalog = catalog;
+		this.searchIndex = searchIndex;
+		this.bank = bank;
+		this.metrics = metrics;
+		this.pipeline = new PohStoragePipeline(computeMetrics);
+		this.unit = unit;
+		this.titleContainer = titleContainer;
+		this.contentContainer = contentContainer;
+		this.itemContainer = itemContainer;
+		this.scrollbar = scrollbar;
+		this.originalScroll = itemContainer.getScrollHeight();
+	}
+
+	public void requestRescan()
+	{
+		rescanRequired = true;
+	}
+
+	/**
+	 * Records an inventory change of {@code itemId}. Returns false when no set of this unit holds the item.
+	 */
+	public boolean markItemChanged(int itemId)
+	{
+		int setIndex = itemIndex.get(itemId, SET_UNINDEXED);
+		if (setIndex == SET_SHARED)
+		{
+			rescanRequired = true;
+		}
+		else if (setIndex >= 0)
+		{
+			changedSets.set(setIndex);
+			settle(storageSets.get(setIndex), itemId);
+		}
+		return setIndex != SET_UNINDEXED;
+	}
+
+	/**
+	 * Records that {@code itemId} came into or left the bank, so the missing items it flags are classified again.
+	 * Returns false when no set of this unit holds the item.
+	 */
+	public boolean markBankChanged(int itemId)
+	{
+		int setIndex = itemIndex.get(itemId, SET_UNINDEXED);
+		if (setIndex == SET_SHARED)
+		{
+			rescanRequired = true;
+		}
+		else if (setIndex >= 0)
+		{
+			changedSets.set(setIndex);
+		}
+		return setIndex != SET_UNINDEXED;
+	}
+
+	/**
+	 * Predicts that a deposit of {@code itemId} stores one of its missing set items, ahead of the server confirming it,
+	 * so the next relayout shows the outcome straight away. The inventory change of the item settles the prediction
+	 * against the live widgets. Returns false when no single set is missing the item.
+	 */
+	public boolean predictStored(int itemId)
+	{
+		int setIndex = itemIndex.get(itemId, SET_UNINDEXED);
+		if (setIndex < 0)
+		{
+			return false;
+		}
+
+		PohStorageSet storageSet = storageSets.get(setIndex);
+		for (int item = 0; item < storageSet.getItemCount(); item++)
+		{
+			int child = storageSet.getItem(item);
+			if (snapshot.getItemId(child) == itemId && !predictedItems.get(child) && snapshot.getWidget(child).getOpacity() != 0)
+			{
+				predictedItems.set(child);
+				predictedSets.set(setIndex);
+				changedSets.set(setIndex);
+				metrics.count(Counter.PREDICTED, 1);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean hasPredictions()
+	{
+		return !predictedItems.isEmpty();
+	}
+
+	/**
+	 * Drops every prediction the server never confirmed, reclassifying their sets from the live widgets.
+	 */
+	public void expirePredictions()
+	{
+		metrics.count(Counter.MISPREDICTED, predictedItems.cardinality());
+		predictedItems.clear();
+		changedSets.or(predictedSets);
+		predictedSets.clear();
+	}
+
+	/**
+	 * Starts a relayout on the client thread: rescans the live widgets as needed and captures everything
+	 * {@link #compute()} reads, handing the scanned state over to it until it is applied or discarded.
+	 * Returns false, leaving the interface untouched, when the widgets are not recognised.
+	 *
+	 * <p>When {@code virtualized}, only sets within {@code viewportMargin} pixels of the visible scroll window are laid
+	 * out. Sets are shown when their type is enabled and they match {@code filter}, ordered by {@code sortOrder}.
+	 */
+	public boolean prepare(boolean showEmpty, boolean showPartial, boolean showFull, PohStorageFilter filter, int sortOrder, int[] setSprites, int normalOpacity, boolean virtualized, int viewportMargin)
+	{
+		if (rescanRequired || storageSets.isEmpty())
+		{
+			pipeline.invalidate(Stage.SCAN);
+		}
+		else if (!changedSets.isEmpty())
+		{
+			pipeline.invalidate(Stage.CLASSIFY);
+		}
+
+		if (!pipeline.isDirty(Stage.SCAN) && pipeline.isDirty(Stage.CLASSIFY))
+		{
+			long start = metrics.start();
+			boolean reclassified = reclassifySets();
+			metrics.record(Phase.CLASSIFY, start);
+			if (!reclassified)
+			{
+				pipeline.invalidate(Stage.SCAN);
+			}
+		}
+
+		if (pipeline.isDirty(Stage.SCAN))
+		{
+			long start = metrics.start();
+			boolean scanned = updateWidgetLists();
+			metrics.record(Phase.SCAN, start);
+			if (!scanned)
+			{
+				// Leave an interface we do not understand untouched until a later rescan succeeds
+				changedSets.clear();
+				relayoutPending = false;
+				commit();
+				return false;
+			}
+			// The filter is evaluated for every set again once next needed
+			appliedFilter = null;
+			pipeline.complete(Stage.SCAN, true);
+			pipeline.complete(Stage.CLASSIFY, true);
+		}
+		else
+		{
+			pipeline.complete(Stage.SCAN, false);
+			pipeline.complete(Stage.CLASSIFY, pipeline.isDirty(Stage.CLASSIFY));
+		}
+		rescanRequired = false;
+
+		// From here on the computation owns the sets changed so far
+		dirtySets.or(changedSets);
+		changedSets.clear();
+
+		addDividers(model.getMaxDividerCount());
+		dividers.capture(addedDividers);
+
+		int scrollY = itemContainer.getScrollY();
+		int height = itemContainer.getHeight();
+		int top = virtualized ? scrollY - viewportMargin : Integer.MIN_VALUE;
+		int bottom = virtualized ? scrollY + height + viewportMargin : Integer.MAX_VALUE;
+
+		if (filter != this.filter)
+		{
+			pipeline.invalidate(Stage.FILTER);
+		}
+		if (sortOrder != this.sortOrder)
+		{
+			pipeline.invalidate(Stage.SORT);
+		}
+		if (showEmpty != this.showEmpty || showPartial != this.showPartial || showFull != this.showFull
+			|| height != containerHeight || top != windowTop || bottom != windowBottom)
+		{
+			pipeline.invalidate(Stage.LAYOUT);
+		}
+		if (setSprites[0] != this.setSprites[0] || setSprites[1] != this.setSprites[1] || setSprites[2] != this.setSprites[2]
+			|| normalOpacity != this.normalOpacity)
+		{
+			pipeline.invalidate(Stage.PAINT);
+		}
+
+		containerHeight = height;
+		this.virtualized = virtualized;
+		windowTop = top;
+		windowBottom = bottom;
+		this.showEmpty = showEmpty;
+		this.showPartial = showPartial;
+		this.showFull = showFull;
+		this.filter = filter;
+		this.sortOrder = sortOrder;
+		System.arraycopy(setSprites, 0, this.setSprites, 0, this.setSprites.length);
+		this.normalOpacity = normalOpacity;
+		relayoutPending = true;
+		return true;
+	}
+
+	/**
+	 * Computes the plan of the relayout started by {@link #prepare}, rerunning only the stages whose inputs changed.
+	 * Reads no widgets and records no metrics, so it may run on any thread, but only while the client thread leaves the
+	 * session alone.
+	 */
+	public void compute()
+	{
+		if (!pipeline.isDirty(Stage.LAYOUT) && !pipeline.isDirty(Stage.PAINT))
+		{
+			// The applied plan is still current
+			pipeline.complete(Stage.LAYOUT, false);
+			pipeline.complete(Stage.PAINT, false);
+			return;
+		}
+
+		// A recently seen view needs neither filtering nor sorting, which stay due until a plan is laid out
+		int filterMask = (showEmpty ? 1 << SET_TYPE_EMPTY : 0) | (showPartial ? 1 << SET_TYPE_PARTIAL : 0) | (showFull ? 1 << SET_TYPE_FULL : 0);
+		planKey.set(filterMask, filter, sortOrder, model.getFingerprint(), setSprites, normalOpacity, containerHeight);
+		PohStorageLayout cached = planCache.get(planKey);
+		if (cached != null)
+		{
+			computeMetrics.count(Counter.PLAN_HITS, 1);
+			pipeline.complete(Stage.LAYOUT, false);
+			pipeline.complete(Stage.PAINT, false);
+			computedLayout = applyWindow(cached);
+			return;
+		}
+		computeMetrics.count(Counter.PLAN_MISSES, 1);
+
+		// Only the shades changed, so the plan laid out last is repainted rather than laid out again
+		PohStorageLayout source = pipeline.isDirty(Stage.LAYOUT) ? null : planCache.getLayout(planKey);
+		if (source != null)
+		{
+			long start = computeMetrics.start();
+			PohStorageLayout plan = takeLayout();
+			plan.repaint(source, storageSets, snapshot, setSprites, normalOpacity);
+			evictedLayout = planCache.put(planKey, plan);
+			computeMetrics.record(Phase.REPAINT, start);
+			computedLayout = applyWindow(plan);
+			pipeline.complete(Stage.LAYOUT, false);
+			pipeline.complete(Stage.PAINT, true);
+			return;
+		}
+
+		// Only the sets whose stored items changed need their matches re-evaluated
+		long start = computeMetrics.start();
+		boolean filterDirty = pipeline.isDirty(Stage.FILTER);
+		if (filterDirty)
+		{
+			if (filter != appliedFilter)
+			{
+				filter.evaluate(model, filterMatches);
+				appliedFilter = filter;
+			}
+			else
+			{
+				filter.evaluate(model, filterMatches, dirtySets);
+			}
+			dirtySets.clear();
+		}
+		pipeline.complete(Stage.FILTER, filterDirty);
+		computeMetrics.record(Phase.FILTER, start);
+
+		start = computeMetrics.start();
+		boolean sortDirty = pipeline.isDirty(Stage.SORT) && model.isSortStale(sortOrder);
+		if (sortDirty)
+		{
+			model.sort(sortOrder);
+		}
+		pipeline.complete(Stage.SORT, sortDirty);
+		computeMetrics.record(Phase.SORT, start);
+
+		start = computeMetrics.start();
+		model.filter(showEmpty, showPartial, showFull, filter.matchesAll() ? null : filterMatches);
+		model.layout();
+		PohStorageLayout plan = takeLayout();
+		plan.build(model, storageSets, snapshot, dividers, setSprites, normalOpacity, containerHeight);
+		evictedLayout = planCache.put(planKey, plan);
+		computeMetrics.record(Phase.LAYOUT, start);
+		computedLayout = applyWindow(plan);
+		pipeline.complete(Stage.LAYOUT, true);
+		pipeline.complete(Stage.PAINT, true);
+	}
+
+	/**
+	 * Returns {@code plan} with the sets outside the scroll window parked, or {@code plan} itself when the relayout is
+	 * not virtualized. Cached plans cover every set, so a scroll only has to window a cached plan again.
+	 */
+	private PohStorageLayout applyWindow(PohStorageLayout plan)
+	{
+		if (!virtualized)
+		{
+			return plan;
+		}
+
+		long start = computeMetrics.start();
+		PohStorageLayout windowed = takeLayout();
+		windowed.window(plan, storageSets, snapshot, dividers, windowTop, windowBottom);
+		computeMetrics.record(Phase.WINDOW, start);
+		return windowed;
+	}
+
+	/**
+	 * Starts applying the computed plan on the client thread, visible sets first, for {@link #applySlice} to carry out.
+	 */
+	public void beginApply()
+	{
+		metrics.add(computeMetrics);
+		if (computedLayout != null)
+		{
+			int scrollY = itemContainer.getScrollY();
+			applier.begin(computedLayout, appliedLayout, scrollY - WIDGET_SET_HEIGHT, scrollY + itemContainer.getHeight());
+			scrollForced |= appliedLayout == null;
+		}
+	}
+
+	/**
+	 * Applies the next slice of at most {@code budget} widget writes of the plan being applied, or all of it when
+	 * {@code budget} is 0. Returns true once the whole plan is applied.
+	 */
+	public boolean applySlice(int budget)
+	{
+		PohStorageLayout plan = applier.getPlan();
+		if (plan != null)
+		{
+			long start = metrics.start();
+			boolean done = applier.step(transaction, hover, budget);
+			metrics.record(Phase.APPLY, start);
+			if (!done)
+			{
+				flush();
+				return false;
+			}
+
+			applier.clear();
+			transaction.setScrollHeight(itemContainer, scrollbar, plan.getScrollHeight(), scrollForced);
+			scrollForced = false;
+			replaceAppliedLayout(plan);
+		}
+		recycle(evictedLayout);
+		computedLayout = null;
+		evictedLayout = null;
+		relayoutPending = false;
+
+		commit();
+		return true;
+	}
+
+	public boolean isApplying()
+	{
+		return applier.isActive();
+	}
+
+	/**
+	 * Whether a relayout was prepared and neither its plan nor that of a newer relayout superseding it is fully applied
+	 * yet.
+	 */
+	public boolean isRelayoutPending()
+	{
+		return relayoutPending;
+	}
+
+	/**
+	 * Stops the plan being applied, for when a newer relayout supersedes it. The widgets keep whatever was applied,
+	 * and the partly applied plan is taken as the applied one so the next plan is applied over what they really show.
+	 */
+	public void cancelApply()
+	{
+		if (!applier.isActive())
+		{
+			return;
+		}
+
+		PohStorageLayout plan = applier.cancel(itemContainer.getScrollHeight());
+		planCache.remove(plan);
+		replaceAppliedLayout(plan);
+		pipeline.invalidate(Stage.LAYOUT);
+		recycle(evictedLayout);
+		computedLayout = null;
+		evictedLayout = null;
+
+		commit();
+	}
+
+	/**
+	 * Drops the computed plan on the client thread, for when it was superseded before it could be applied.
+	 */
+	public void discard()
+	{
+		metrics.add(computeMetrics);
+		pipeline.invalidate(Stage.LAYOUT);
+		if (computedLayout != null && !planCache.contains(computedLayout))
+		{
+			recycle(computedLayout);
+		}
+		recycle(evictedLayout);
+		computedLayout = null;
+		evictedLayout = null;
+
+		commit();
+	}
+
+	/**
+	 * Whether the user scrolled past the window laid out by a virtualized relayout.
+	 */
+	public boolean isViewportOutsideWindow()
+	{
+		if (!virtualized)
+		{
+			return false;
+		}
+
+		int scrollY = itemContainer.getScrollY();
+		return scrollY < windowTop || scrollY + itemContainer.getHeight() > windowBottom;
+	}
+
+	public void reset()
+	{
+		cancelApply();
+
+		long start = metrics.start();
+		planCache.clear();
+		PohStorageLayout plan = takeLayout();
+		dividers.capture(addedDividers);
+		plan.buildOriginal(model, storageSets, snapshot, dividers, originalScroll);
+		applyLayout(plan);
+		pipeline.invalidate(Stage.LAYOUT);
+		hover.clear();
+		relayoutPending = false;
+		metrics.record(Phase.RESET, start);
+
+		commit();
+	}
+
+	public void close()
+	{
+		if (catalog != null)
+		{
+			catalog.close();
+		}
+	}
+
+	/**
+	 * Changes the height of the content container by {@code adjustment} and revalidates the scrolling widgets below it,
+	 * together with the next relayout or reset.
+	 */
+	public void adjustHeight(int adjustment)
+	{
+		transaction.setOriginalHeight(contentContainer, contentContainer.getOriginalHeight() + adjustment);
+		transaction.revalidate(contentContainer);
+		transaction.revalidate(itemContainer);
+		transaction.revalidate(scrollbar);
+		for (Widget scrollChild : scrollbar.getDynamicChildren())
+		{
+			transaction.revalidate(scrollChild);
+		}
+	}
+
+	private void applyLayout(PohStorageLayout plan)
+	{
+		plan.apply(appliedLayout, transaction, hover);
+		transaction.setScrollHeight(itemContainer, scrollbar, plan.getScrollHeight(), appliedLayout == null);
+		replaceAppliedLayout(plan);
+		pipeline.invalidate(Stage.LAYOUT);
+	}
+
+	private void replaceAppliedLayout(PohStorageLayout plan)
+	{
+		PohStorageLayout previous = appliedLayout;
+		appliedLayout = plan;
+		if (!planCache.contains(previous))
+		{
+			recycle(previous);
+		}
+	}
+
+	/**
+	 * Returns a plan to build into, reusing a plan that is neither applied nor cached when there is one, so a
+	 * steady-state relayout does not allocate a new plan.
+	 */
+	private PohStorageLayout takeLayout()
+	{
+		PohStorageLayout plan = spareLayout;
+		spareLayout = null;
+		if (plan == null && evictedLayout != null && evictedLayout != appliedLayout)
+		{
+			// A miss that evicted a plan also needs one to window into
+			plan = evictedLayout;
+			evictedLayout = null;
+		}
+		return plan != null ? plan : new PohStorageLayout(0);
+	}
+
+	private void recycle(PohStorageLayout plan)
+	{
+		if (plan != null && plan != appliedLayout && spareLayout == null)
+		{
+			spareLayout = plan;
+		}
+	}
+
+	private void commit()
+	{
+		flush();
+		metrics.endEvent();
+	}
+
+	/**
+	 * Revalidates and counts the writes made so far, without closing the event, for each slice of a plan applied over
+	 * several ticks.
+	 */
+	private void flush()
+	{
+		long start = metrics.start();
+		transaction.commitWidgets();
+		metrics.record(Phase.REVALIDATE, start);
+
+		start = metrics.start();
+		transaction.commitScroll();
+		metrics.record(Phase.SCROLLBAR, start);
+
+		metrics.count(Counter.WRITES, transaction.getWritten());
+		metrics.count(Counter.SKIPPED, transaction.getSkipped());
+		metrics.count(Counter.REVALIDATIONS, transaction.getRevalidations());
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Committed {} writes ({} skipped), {} revalidations, {} scrollbar updates",
+				transaction.getWritten(), transaction.getSkipped(), transaction.getRevalidations(), transaction.getScrollUpdates());
+		}
+		transaction.resetCounters();
+	}
+
+	/**
+	 * Rescans the live widgets, returning false when their structure is not recognised.
+	 */
+	private boolean updateWidgetLists()
+	{
+		// The client's own sparse array, indexed by child index, rather than a copy of its dynamic children
+		Widget[] children = itemContainer.getChildren();
+
+		addedDividerIndexes.clear();
+		for (int i = addedDividers.size() - 1; i >= 0; i--)
+		{
+			int index = addedDividers.get(i).getIndex();
+			if (children == null || index >= children.length || children[index] != addedDividers.get(i))
+			{
+				addedDividers.remove(i);
+				planCache.clear();
+			}
+			else
+			{
+				addedDividerIndexes.set(index);
+			}
+		}
+
+		// A rescan classifies sets from the live widgets alone, dropping unconfirmed predictions
+		predictedItems.clear();
+		settledItems.clear();
+		predictedSets.clear();
+
+		// Dividers we added come after the interface's own children and are not part of the scan
+		int last = children == null ? -1 : children.length - 1;
+		while (last >= 0 && (children[last] == null || addedDividerIndexes.get(children[last].getIndex())))
+		{
+			last--;
+		}
+		int childCount = last < 0 ? 0 : children[last].getIndex() + 1;
+		snapshot.begin(childCount);
+		model.beginScan(childCount);
+		boolean recaptured = false;
+
+		for (int i = 0; i <= last; i++)
+		{
+			Widget child = children[i];
+			if (child != null && !addedDividerIndexes.get(child.getIndex()))
+			{
+				int index = child.getIndex();
+
+				// Widgets we positioned ourselves keep the properties captured before they were first moved
+				if (!snapshot.contains(index, child) || appliedLayout == null || !appliedLayout.matches(index, child))
+				{
+					// Cached plans refer to the replaced widget or to properties it no longer has
+					if (appliedLayout != null)
+					{
+						appliedLayout.forget(index);
+					}
+					recaptured = true;
+					snapshot.capture(index, child);
+				}
+
+				model.setChild(index, child.getType(), child.getWidth(), child.getOpacity(), snapshot.isHidden(index), child.getType() == WidgetType.TEXT ? child.getText() : null);
+			}
+		}
+
+		if (recaptured)
+		{
+			planCache.clear();
+		}
+
+		if (!model.scan())
+		{
+			if (!model.getScanError().equals(loggedScanError))
+			{
+				log.warn("Not laying out {}: {}", unit.getTitle(), model.getScanError());
+				loggedScanError = model.getScanError();
+			}
+			storageSets.clear();
+			itemIndex.clear();
+			planCache.clear();
+			return false;
+		}
+		buildStorageSets();
+
+		if (catalog != null)
+		{
+			catalog.save(model, snapshot);
+		}
+		return true;
+	}
+
+	private void buildStorageSets()
+	{
+		storageSets.clear();
+		itemIndex.clear();
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			if (set == setViews.size())
+			{
+				setViews.add(new PohStorageSet(model, set));
+			}
+			storageSets.add(setViews.get(set));
+
+			for (int item = 0; item < model.getItemCount(set); item++)
+			{
+				int child = model.getItem(set, item);
+				indexItem(snapshot.getItemId(child), set);
+				model.setBanked(child, model.getChildOpacity(child) != 0 && bank.contains(snapshot.getItemId(child)));
+			}
+		}
+		searchIndex.update(unit, model, itemIdAt);
+	}
+
+	private void addDividers(int count)
+	{
+		while (addedDividers.size() < count)
+		{
+			Widget child = itemContainer.createChild(-1, WidgetType.GRAPHIC);
+			child.setOriginalWidth(WIDGET_DIVIDER_WIDTH);
+			child.setOriginalHeight(WIDGET_SET_HEIGHT - WIDGET_OFFSET);
+			child.setSpriteId(SpriteID.UNKNOWN_BORDER_EDGE_VERTICAL);
+			child.setSpriteTiling(true);
+			// Until the plan placing it is applied
+			child.setHidden(true);
+			addedDividers.add(child);
+			metrics.count(Counter.CREATED, 1);
+		}
+	}
+
+	private boolean reclassifySets()
+	{
+		for (int i = changedSets.nextSetBit(0); i >= 0; i = changedSets.nextSetBit(i + 1))
+		{
+			if (i >= storageSets.size())
+			{
+				return false;
+			}
+
+			// The interface rebuilt its children, so the captured widgets are no longer live
+			PohStorageSet storageSet = storageSets.get(i);
+			if (itemContainer.getChild(storageSet.getHeader()) != snapshot.getWidget(storageSet.getHeader()))
+			{
+				return false;
+			}
+
+			int stored = 0;
+			for (int item = 0; item < storageSet.getItemCount(); item++)
+			{
+				int child = storageSet.getItem(item);
+				int opacity = snapshot.getWidget(child).getOpacity();
+				if (opacity == 0)
+				{
+					predictedItems.clear(child);
+				}
+				else if (settledItems.get(child))
+				{
+					metrics.count(Counter.MISPREDICTED, 1);
+				}
+				settledItems.clear(child);
+
+				boolean itemStored = opacity == 0 || predictedItems.get(child);
+				if (itemStored)
+				{
+					stored++;
+				}
+				model.setBanked(child, !itemStored && bank.contains(snapshot.getItemId(child)));
+				if (catalog != null)
+				{
+					catalog.updateOpacity(child, opacity);
+				}
+				searchIndex.setStored(unit, i, item, itemStored);
+			}
+			model.setStored(i, stored);
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the predictions of {@code itemId} in {@code storageSet} to be checked against the live widgets by the
+	 * next reclassification.
+	 */
+	private void settle(PohStorageSet storageSet, int itemId)
+	{
+		for (int item = 0; item < storageSet.getItemCount(); item++)
+		{
+			int child = storageSet.getItem(item);
+			if (predictedItems.get(child) && snapshot.getItemId(child) == itemId)
+			{
+				predictedItems.clear(child);
+				settledItems.set(child);
+			}
+		}
+	}
+
+	private void indexItem(int itemId, int setIndex)
+	{
+		int owner = itemIndex.get(itemId, setIndex);
+		itemIndex.put(itemId, owner == setIndex ? setIndex : SET_SHARED);
+	}
+}
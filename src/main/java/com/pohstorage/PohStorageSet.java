@@ -1,77 +1,64 @@
 package com.pohstorage;
 
-import lombok.Getter;
-import lombok.Setter;
-import net.runelite.api.widgets.Widget;
+/**
+ * A scanned set of a storage unit, read from its range in the model, so that a rescan updates it in place.
+ */
+public class PohStorageSet
+{
+	private final PohStorageModel model;
+	private final int set;
 
-import java.util.ArrayList;
-import java.util.List;
+	public PohStorageSet(PohStorageModel model, int set)
+	{
+		this.model = model;
+		this.set = set;
+	}
 
-@Getter
-@Setter
-public class PohStorageSet implements Comparable<PohStorageSet>
-{
+	public int getHeader()
+	{
+		return model.getHeader(set);
+	}
+
+	public int getOutline()
+	{
+		return getHeader() - 3;
+	}
 
-	private PohStorageWidget outline;
-	private PohStorageWidget arrow;
-	private PohStorageWidget footer;
-	private PohStorageWidget header;
-	private List<PohStorageWidget> items;
-	private String name;
-	private int type;
-	private boolean collapsible;
-	private int column = 1;
+	public int getArrow()
+	{
+		return getHeader() - 2;
+	}
+
+	public int getFooter()
+	{
+		return getHeader() - 1;
+	}
 
-	public PohStorageSet(PohStorageWidget outline, PohStorageWidget arrow, PohStorageWidget footer, PohStorageWidget header, List<PohStorageWidget> items, String name, int type, boolean collapsible)
+	public int getType()
 	{
-		this.outline = outline;
-		this.arrow = arrow;
-		this.footer = footer;
-		this.header = header;
-		this.items = items;
-		this.name = name;
-		this.type = type;
-		this.collapsible = collapsible;
+		return model.getType(set);
 	}
 
-	public List<PohStorageWidget> getAll()
+	public int getItemCount()
 	{
-		List<PohStorageWidget> returnList = new ArrayList<PohStorageWidget>();
-		returnList.add(outline);
-		returnList.add(arrow);
-		returnList.add(footer);
-		returnList.add(header);
-		returnList.addAll(items);
-		return returnList;
+		return model.getItemCount(set);
 	}
 
-	public List<Widget> getAllWidgets()
+	public int getItem(int item)
 	{
-		List<Widget> returnList = new ArrayList<Widget>();
-		for (PohStorageWidget poh : getAll())
-		{
-			returnList.add(poh.getWidget());
-		}
-		return returnList;
+		return model.getItem(set, item);
 	}
 
-	public List<Widget> getWidgetItems()
+	public int getWidgetCount()
 	{
-		List<Widget> returnList = new ArrayList<Widget>();
-		for (PohStorageWidget poh : items)
-		{
-			returnList.add(poh.getWidget());
-		}
-		return returnList;
+		return getItemCount() + 4;
 	}
 
-	@Override
-	public int compareTo(PohStorageSet o)
+	/**
+	 * Child index of the set's {@code widget}th widget: outline, arrow, footer and header, followed by the items.
+	 */
+	public int getWidget(int widget)
 	{
-		if (getName() == null || o.getName() == null)
-		{
-			return 0;
-		}
-		return getName().compareTo(o.getName());
+		return widget < 4 ? getHeader() - 3 + widget : getItem(widget - 4);
 	}
 }
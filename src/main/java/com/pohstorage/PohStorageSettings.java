@@ -0,0 +1,73 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.awt.Color;
+
+import static com.pohstorage.PohStoragePipeline.Stage;
+
+/**
+ * An immutable copy of the config, taken once per config change so relayouts read plain fields rather than going
+ * through the config proxy, together with the pipeline stage each config key affects.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PohStorageSettings
+{
+	private final PohStorageConfig.preserveFilters preserveFilters;
+	private final Color fullSetShade;
+	private final Color partialSetShade;
+	private final Color emptySetShade;
+	private final int shadeOpacity;
+	private final boolean virtualizeLayout;
+	private final int viewportMargin;
+	private final int applyBudget;
+	private final boolean showPerformanceOverlay;
+	private final String filterQuery;
+	private final PohStorageFilter filter;
+	private final PohStorageConfig.sortOrder sortOrder;
+
+	/**
+	 * Reads every setting from {@code config}, with {@code filter} compiled from its filter query.
+	 */
+	public static PohStorageSettings from(PohStorageConfig config, PohStorageFilter filter)
+	{
+		return new PohStorageSettings(config.preserveFilters(), config.fullSetShade(), config.partialSetShade(),
+			config.emptySetShade(), config.shadeOpacity(), config.virtualizeLayout(), config.viewportMargin(),
+			config.applyBudget(), config.showPerformanceOverlay(), config.filterQuery(), filter, config.sortOrder());
+	}
+
+	/**
+	 * The earliest relayout stage a change of {@code key} affects, or null when nothing already laid out depends on it.
+	 * Keys this version does not know are rescanned, to be safe.
+	 */
+	public static Stage getStage(String key)
+	{
+		switch (key)
+		{
+			case "fullSetShade":
+			case "partialSetShade":
+			case "emptySetShade":
+			case "shadeOpacity":
+				return Stage.PAINT;
+			case "virtualizeLayout":
+			case "viewportMargin":
+				return Stage.LAYOUT;
+			case "sortOrder":
+				return Stage.SORT;
+			case "filterQuery":
+				return Stage.FILTER;
+			case "preserveFilters":
+			case "applyBudget":
+			case "showPerformanceOverlay":
+			// Set type toggles request their own relayout
+			case "showPartialSets":
+			case "showEmptySets":
+			case "showFullSets":
+				return null;
+			default:
+				return Stage.SCAN;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.Widget;
+
+import java.util.Arrays;
+
+import static com.pohstorage.PohStorageModel.WIDGET_ICON_WIDTH;
+
+/**
+ * Original properties of the storage container's children, indexed by child index and reused across scans.
+ */
+public class PohStorageSnapshot
+{
+	private int size;
+	private Widget[] widgets = new Widget[0];
+	private int[] x = new int[0];
+	private int[] y = new int[0];
+	private int[] width = new int[0];
+	private int[] opacity = new int[0];
+	private int[] spriteId = new int[0];
+	private int[] widthMode = new int[0];
+	private int[] xPositionMode = new int[0];
+	private int[] itemId = new int[0];
+	private int[] borderType = new int[0];
+	private boolean[] hidden = new boolean[0];
+
+	public void begin(int count)
+	{
+		if (widgets.length < count)
+		{
+			int capacity = Math.max(count, widgets.length * 2);
+			widgets = Arrays.copyOf(widgets, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			width = Arrays.copyOf(width, capacity);
+			opacity = Arrays.copyOf(opacity, capacity);
+			spriteId = Arrays.copyOf(spriteId, capacity);
+			widthMode = Arrays.copyOf(widthMode, capacity);
+			xPositionMode = Arrays.copyOf(xPositionMode, capacity);
+			itemId = Arrays.copyOf(itemId, capacity);
+			borderType = Arrays.copyOf(borderType, capacity);
+			hidden = Arrays.copyOf(hidden, capacity);
+		}
+		else if (count < size)
+		{
+			Arrays.fill(widgets, count, size, null);
+		}
+		size = count;
+	}
+
+	public boolean contains(int index, Widget widget)
+	{
+		return widgets[index] == widget;
+	}
+
+	public void capture(int index, Widget widget)
+	{
+		widgets[index] = widget;
+		x[index] = widget.getOriginalX();
+		y[index] = widget.getOriginalY();
+		width[index] = widget.getOriginalWidth();
+		opacity[index] = widget.getOpacity();
+		spriteId[index] = widget.getSpriteId();
+		widthMode[index] = widget.getWidthMode();
+		xPositionMode[index] = widget.getXPositionMode();
+		itemId[index] = widget.getItemId();
+		borderType[index] = widget.getBorderType();
+		hidden[index] = widget.isHidden();
+	}
+
+	public void clear()
+	{
+		Arrays.fill(widgets, 0, size, null);
+		size = 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public Widget getWidget(int index)
+	{
+		return widgets[index];
+	}
+
+	public int getX(int index)
+	{
+		return x[index];
+	}
+
+	public int getY(int index)
+	{
+		return y[index];
+	}
+
+	public int getWidth(int index)
+	{
+		return width[index];
+	}
+
+	public int getOpacity(int index)
+	{
+		return opacity[index];
+	}
+
+	public int getSpriteId(int index)
+	{
+		return spriteId[index];
+	}
+
+	public int getWidthMode(int index)
+	{
+		return widthMode[index];
+	}
+
+	public int getXPositionMode(int index)
+	{
+		return xPositionMode[index];
+	}
+
+	public int getItemId(int index)
+	{
+		return itemId[index];
+	}
+
+	public int getBorderType(int index)
+	{
+		return borderType[index];
+	}
+
+	public boolean isHidden(int index)
+	{
+		return hidden[index];
+	}
+
+	public boolean isIcon(int index)
+	{
+		return width[index] == WIDGET_ICON_WIDTH;
+	}
+}
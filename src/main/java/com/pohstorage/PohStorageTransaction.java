@@ -0,0 +1,226 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import net.runelite.api.Client;
+import net.runelite.api.ScriptID;
+import net.runelite.api.widgets.Widget;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Batches widget mutations. Writes whose value the widget already has are skipped, every widget that was written
+ * is revalidated once on {@link #commit()}, and the scrollbar script runs at most once per commit.
+ */
+public class PohStorageTransaction
+{
+	private final Client client;
+
+	// IdentityHashMap keeps its keys in a flat table, so reusing it does not allocate per touched widget
+	private final Map<Widget, Boolean> touched = new IdentityHashMap<Widget, Boolean>();
+
+	private Widget scrollContainer;
+	private Widget scrollbar;
+	private int scrollHeight;
+	private boolean scrollForced;
+
+	@Getter
+	private int written;
+
+	@Getter
+	private int skipped;
+
+	@Getter
+	private int revalidations;
+
+	@Getter
+	private int scrollUpdates;
+
+	public PohStorageTransaction(Client client)
+	{
+		this.client = client;
+	}
+
+	public void setOriginalX(Widget widget, int value)
+	{
+		if (widget.getOriginalX() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setOriginalX(value);
+		wrote(widget);
+	}
+
+	public void setOriginalY(Widget widget, int value)
+	{
+		if (widget.getOriginalY() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setOriginalY(value);
+		wrote(widget);
+	}
+
+	public void setOriginalWidth(Widget widget, int value)
+	{
+		if (widget.getOriginalWidth() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setOriginalWidth(value);
+		wrote(widget);
+	}
+
+	public void setOriginalHeight(Widget widget, int value)
+	{
+		if (widget.getOriginalHeight() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setOriginalHeight(value);
+		wrote(widget);
+	}
+
+	public void setWidthMode(Widget widget, int value)
+	{
+		if (widget.getWidthMode() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setWidthMode(value);
+		wrote(widget);
+	}
+
+	public void setXPositionMode(Widget widget, int value)
+	{
+		if (widget.getXPositionMode() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setXPositionMode(value);
+		wrote(widget);
+	}
+
+	public void setSpriteId(Widget widget, int value)
+	{
+		if (widget.getSpriteId() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setSpriteId(value);
+		wrote(widget);
+	}
+
+	public void setBorderType(Widget widget, int value)
+	{
+		if (widget.getBorderType() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setBorderType(value);
+		wrote(widget);
+	}
+
+	public void setOpacity(Widget widget, int value)
+	{
+		if (widget.getOpacity() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setOpacity(value);
+		wrote(widget);
+	}
+
+	public void setHidden(Widget widget, boolean value)
+	{
+		if (widget.isSelfHidden() == value)
+		{
+			skipped++;
+			return;
+		}
+		widget.setHidden(value);
+		wrote(widget);
+	}
+
+	/**
+	 * Revalidates {@code widget} on commit even though no property of it was written through this transaction.
+	 */
+	public void revalidate(Widget widget)
+	{
+		touched.put(widget, Boolean.TRUE);
+	}
+
+	/**
+	 * Sets the scroll height of {@code container} on commit and updates {@code scrollbar} to match, unless the height
+	 * is unchanged and {@code force} is false.
+	 */
+	public void setScrollHeight(Widget container, Widget scrollbar, int height, boolean force)
+	{
+		this.scrollContainer = container;
+		this.scrollbar = scrollbar;
+		this.scrollHeight = height;
+		this.scrollForced |= force;
+	}
+
+	public void commit()
+	{
+		commitWidgets();
+		commitScroll();
+	}
+
+	/**
+	 * Revalidates every widget touched since the last commit.
+	 */
+	public void commitWidgets()
+	{
+		if (!touched.isEmpty())
+		{
+			for (Widget widget : touched.keySet())
+			{
+				widget.revalidate();
+				revalidations++;
+			}
+			touched.clear();
+		}
+	}
+
+	/**
+	 * Runs the staged scroll height update, if any.
+	 */
+	public void commitScroll()
+	{
+		if (scrollContainer != null && (scrollForced || scrollContainer.getScrollHeight() != scrollHeight))
+		{
+			scrollContainer.setScrollHeight(scrollHeight);
+			scrollContainer.revalidateScroll();
+			client.runScript(ScriptID.UPDATE_SCROLLBAR, scrollbar.getId(), scrollContainer.getId(), scrollContainer.getScrollY());
+			scrollUpdates++;
+		}
+		scrollContainer = null;
+		scrollbar = null;
+		scrollForced = false;
+	}
+
+	public void resetCounters()
+	{
+		written = 0;
+		skipped = 0;
+		revalidations = 0;
+		scrollUpdates = 0;
+	}
+
+	private void wrote(Widget widget)
+	{
+		written++;
+		touched.put(widget, Boolean.TRUE);
+	}
+}
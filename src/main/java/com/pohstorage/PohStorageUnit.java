@@ -0,0 +1,57 @@
+package com.pohstorage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public enum PohStorageUnit
+{
+	ARMOUR_CASE("Armour Case"),
+	CAPE_RACK("Cape Rack"),
+	TOY_BOX("Toy Box"),
+	FANCY_DRESS_BOX("Fancy Dress Box"),
+	TREASURE_CHEST("Treasure Chest"),
+	MAGIC_WARDROBE("Magic Wardrobe");
+
+	private static final String TITLE_SEPARATORS = "(|:";
+
+	@Getter
+	private final String title;
+
+	/**
+	 * Classifies a storage interface by its title text, ignoring anything from the first "(", "|" or ":" onwards.
+	 * Returns null for storage interfaces the plugin does not handle.
+	 */
+	public static PohStorageUnit fromTitle(String text)
+	{
+		if (text == null)
+		{
+			return null;
+		}
+
+		int end = 0;
+		while (end < text.length() && TITLE_SEPARATORS.indexOf(text.charAt(end)) < 0)
+		{
+			end++;
+		}
+
+		int start = 0;
+		while (start < end && text.charAt(start) <= ' ')
+		{
+			start++;
+		}
+		while (end > start && text.charAt(end - 1) <= ' ')
+		{
+			end--;
+		}
+
+		for (PohStorageUnit unit : values())
+		{
+			if (unit.title.length() == end - start && text.regionMatches(start, unit.title, 0, end - start))
+			{
+				return unit;
+			}
+		}
+		return null;
+	}
+}
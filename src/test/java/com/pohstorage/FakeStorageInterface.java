@@ -0,0 +1,115 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An in-memory POH storage interface (widget group 675) with the child layout {@link PohStorageSession} reads: the
+ * unit title as the second dynamic child of the title container, and per set an outline, arrow, footer, name header
+ * and one icon per item in the item container, each icon shown opaque when stored and faded when missing.
+ */
+public class FakeStorageInterface
+{
+	static final int GROUP_ID = 675;
+	static final int TITLE_CONTAINER = 2;
+	static final int CONTENT_CONTAINER = 3;
+	static final int ITEM_CONTAINER = 4;
+	static final int SCROLLBAR = 5;
+	static final int DEPOSIT_INVENTORY_BUTTON = 10;
+
+	static final int STORED_OPACITY = 0;
+	static final int MISSING_OPACITY = 150;
+
+	private static final int CONTAINER_HEIGHT = 260;
+	private static final int SCROLLBAR_CHILDREN = 6;
+	private static final int FIRST_ITEM_ID = 10000;
+
+	private final Map<Integer, Widget> widgets = new HashMap<Integer, Widget>();
+	private final List<Widget> items = new ArrayList<Widget>();
+
+	/**
+	 * Builds the interface of {@code unit} with {@code sets} sets of one to eight items, each stored with even odds.
+	 */
+	public FakeStorageInterface(PohStorageUnit unit, int sets, long seed)
+	{
+		Random random = new Random(seed);
+
+		Widget titleContainer = add(TITLE_CONTAINER);
+		titleContainer.createChild(-1, WidgetType.GRAPHIC);
+		titleContainer.createChild(-1, WidgetType.TEXT).setText(unit.getTitle());
+
+		add(CONTENT_CONTAINER).setOriginalHeight(CONTAINER_HEIGHT);
+
+		Widget itemContainer = add(ITEM_CONTAINER);
+		itemContainer.setOriginalHeight(CONTAINER_HEIGHT);
+		itemContainer.revalidate();
+		for (int set = 0; set < sets; set++)
+		{
+			int y = set / 2 * PohStorageModel.WIDGET_SET_HEIGHT;
+			int x = set % 2 * PohStorageModel.WIDGET_SET_WIDTH;
+
+			position(itemContainer.createChild(-1, WidgetType.GRAPHIC), x, y, 0);
+			position(itemContainer.createChild(-1, WidgetType.GRAPHIC), x, y, 9);
+			position(itemContainer.createChild(-1, WidgetType.GRAPHIC), x, y + PohStorageModel.WIDGET_SET_HEIGHT, 0);
+			position(itemContainer.createChild(-1, WidgetType.TEXT), x, y, 0).setText("Set " + random.nextInt(sets * 10));
+
+			int itemCount = 1 + random.nextInt(8);
+			for (int item = 0; item < itemCount; item++)
+			{
+				Widget icon = position(itemContainer.createChild(-1, WidgetType.GRAPHIC), x + item * PohStorageModel.WIDGET_ICON_WIDTH, y + PohStorageModel.WIDGET_ICON_TOP_OFFSET, PohStorageModel.WIDGET_ICON_WIDTH);
+				icon.setItemId(FIRST_ITEM_ID + items.size());
+				icon.setOpacity(random.nextBoolean() ? STORED_OPACITY : MISSING_OPACITY);
+				items.add(icon);
+			}
+		}
+		itemContainer.setScrollHeight((sets + 1) / 2 * PohStorageModel.WIDGET_SET_HEIGHT);
+
+		Widget scrollbar = add(SCROLLBAR);
+		for (int i = 0; i < SCROLLBAR_CHILDREN; i++)
+		{
+			scrollbar.createChild(-1, WidgetType.GRAPHIC);
+		}
+	}
+
+	public Widget getWidget(int childId)
+	{
+		return widgets.get(childId);
+	}
+
+	/**
+	 * The item icons of every set, in child order.
+	 */
+	public List<Widget> getItems()
+	{
+		return items;
+	}
+
+	public static boolean isStored(Widget icon)
+	{
+		return icon.getOpacity() == STORED_OPACITY;
+	}
+
+	private Widget add(int childId)
+	{
+		Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put("Id", GROUP_ID << 16 | childId);
+		Widget widget = FakeWidgets.create(properties);
+		widgets.put(childId, widget);
+		return widget;
+	}
+
+	private static Widget position(Widget widget, int x, int y, int width)
+	{
+		widget.setOriginalX(x);
+		widget.setOriginalY(y);
+		widget.setOriginalWidth(width);
+		widget.revalidate();
+		return widget;
+	}
+}
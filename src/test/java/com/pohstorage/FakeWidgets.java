@@ -0,0 +1,153 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.Widget;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory {@link Widget} stand-ins whose getters return whatever the matching setter last stored. Dynamic children
+ * are kept in a list per widget, and like the client's {@link Widget#getChildren()} returns the same array until they
+ * change while {@link Widget#getDynamicChildren()} copies them. Revalidating takes the size from the original
+ * dimensions, and every setter and revalidation is counted.
+ */
+public final class FakeWidgets
+{
+	// Resolved once per method so that reading a fake does not allocate and skew allocation measurements
+	private static final Map<Method, String> PROPERTIES = new ConcurrentHashMap<Method, String>();
+
+	private static long writes;
+	private static long revalidations;
+
+	private FakeWidgets()
+	{
+	}
+
+	public static Widget create(int index, int type, int width, int opacity)
+	{
+		return create(properties(index, type, width, opacity));
+	}
+
+	public static Map<String, Object> properties(int index, int type, int width, int opacity)
+	{
+		Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put("Index", index);
+		properties.put("Type", type);
+		properties.put("OriginalWidth", width);
+		properties.put("Width", width);
+		properties.put("Opacity", opacity);
+		return properties;
+	}
+
+	public static Widget create(Map<String, Object> properties)
+	{
+		List<Widget> children = new ArrayList<Widget>();
+		// The array getChildren returns, built again once the children changed and null while there are none
+		Widget[][] childArray = new Widget[1][];
+		return (Widget) Proxy.newProxyInstance(Widget.class.getClassLoader(), new Class<?>[]{Widget.class}, (proxy, method, args) ->
+		{
+			String name = method.getName();
+			switch (name)
+			{
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "FakeWidget" + properties;
+				case "getChildren":
+					if (childArray[0] == null && !children.isEmpty())
+					{
+						childArray[0] = children.toArray(new Widget[0]);
+					}
+					return childArray[0];
+				case "getDynamicChildren":
+					return children.toArray(new Widget[0]);
+				case "getChild":
+					int index = (Integer) args[0];
+					return index >= 0 && index < children.size() ? children.get(index) : null;
+				case "createChild":
+					// Dynamic children share the id of their parent
+					Map<String, Object> childProperties = properties(children.size(), (Integer) args[1], 0, 0);
+					childProperties.put("Id", properties.get("Id"));
+					Widget child = create(childProperties);
+					children.add(child);
+					childArray[0] = null;
+					return child;
+				case "deleteAllChildren":
+					children.clear();
+					childArray[0] = null;
+					return null;
+				case "revalidate":
+					// Stands in for the client recomputing the size from the original dimensions
+					properties.put("Width", properties.get("OriginalWidth"));
+					properties.put("Height", properties.get("OriginalHeight"));
+					revalidations++;
+					return null;
+				case "revalidateScroll":
+					revalidations++;
+					return null;
+			}
+
+			String property = PROPERTIES.computeIfAbsent(method, FakeWidgets::property);
+			if (name.startsWith("set") && args != null)
+			{
+				writes++;
+				properties.put(property, args.length == 1 ? args[0] : args);
+				return method.getReturnType() == Widget.class ? proxy : null;
+			}
+
+			Object value = properties.get(property);
+			if (value != null)
+			{
+				return value;
+			}
+
+			Class<?> returnType = method.getReturnType();
+			if (returnType == int.class)
+			{
+				return 0;
+			}
+			else if (returnType == boolean.class)
+			{
+				return false;
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Setter calls made on every fake widget so far.
+	 */
+	public static long getWrites()
+	{
+		return writes;
+	}
+
+	/**
+	 * Revalidations made on every fake widget so far.
+	 */
+	public static long getRevalidations()
+	{
+		return revalidations;
+	}
+
+	private static String property(Method method)
+	{
+		String name = method.getName();
+		if (name.equals("isSelfHidden"))
+		{
+			return "Hidden";
+		}
+		else if (name.startsWith("get") || name.startsWith("set"))
+		{
+			return name.substring(3);
+		}
+		return name.startsWith("is") ? name.substring(2) : name;
+	}
+}
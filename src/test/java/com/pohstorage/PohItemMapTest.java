@@ -0,0 +1,198 @@
+package com.pohstorage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PohItemMapTest
+{
+	// Room for four keys before the table of eight slots grows
+	private static final int EXPECTED_SIZE = 4;
+
+	@Test
+	public void removeShiftsCollisionChainBack()
+	{
+		List<Integer> keys = keysWithHomeSlot(3, 3);
+		PohItemMap map = new PohItemMap(EXPECTED_SIZE);
+		for (int key : keys)
+		{
+			map.put(key, key + 1);
+		}
+
+		map.remove(keys.get(0));
+
+		assertFalse(map.containsKey(keys.get(0)));
+		assertEquals(keys.get(1) + 1, map.get(keys.get(1), -1));
+		assertEquals(keys.get(2) + 1, map.get(keys.get(2), -1));
+		assertEquals(2, map.size());
+		// The chain moved back into the gap instead of leaving a hole
+		assertEquals((int) keys.get(1), map.keyAt(3));
+		assertEquals((int) keys.get(2), map.keyAt(4));
+		assertFalse(map.isOccupied(5));
+	}
+
+	@Test
+	public void removeKeepsEntriesAtTheirHomeSlot()
+	{
+		List<Integer> chain = keysWithHomeSlot(2, 2);
+		int other = keysWithHomeSlot(4, 1).get(0);
+		PohItemMap map = new PohItemMap(EXPECTED_SIZE);
+		map.put(chain.get(0), 1);
+		map.put(chain.get(1), 2);
+		map.put(other, 3);
+
+		map.remove(chain.get(0));
+
+		// The key at its home slot right after the chain must not move back into the gap
+		assertEquals(other, map.keyAt(4));
+		assertEquals(2, map.get(chain.get(1), -1));
+		assertEquals(3, map.get(other, -1));
+	}
+
+	@Test
+	public void removeWrapsAroundTheEndOfTheTable()
+	{
+		int last = capacity() - 1;
+		List<Integer> wrapped = keysWithHomeSlot(last, 3);
+		int atStart = keysWithHomeSlot(0, 1).get(0);
+		PohItemMap map = new PohItemMap(EXPECTED_SIZE);
+		for (int key : wrapped)
+		{
+			map.put(key, key);
+		}
+		// Probes past the wrapped chain
+		map.put(atStart, atStart);
+		assertEquals(atStart, map.keyAt(2));
+
+		map.remove(wrapped.get(0));
+
+		assertEquals((int) wrapped.get(1), map.keyAt(last));
+		assertEquals((int) wrapped.get(2), map.keyAt(0));
+		assertEquals(atStart, map.keyAt(1));
+		assertFalse(map.isOccupied(2));
+		for (int i = 1; i < wrapped.size(); i++)
+		{
+			assertEquals((int) wrapped.get(i), map.get(wrapped.get(i), -1));
+		}
+		assertEquals(atStart, map.get(atStart, -1));
+	}
+
+	@Test
+	public void removeLastOfWrappedChain()
+	{
+		int last = capacity() - 1;
+		List<Integer> wrapped = keysWithHomeSlot(last, 3);
+		PohItemMap map = new PohItemMap(EXPECTED_SIZE);
+		for (int key : wrapped)
+		{
+			map.put(key, key);
+		}
+
+		map.remove(wrapped.get(2));
+		map.remove(wrapped.get(0));
+
+		assertEquals(1, map.size());
+		assertEquals((int) wrapped.get(1), map.keyAt(last));
+		assertFalse(map.isOccupied(0));
+		assertFalse(map.isOccupied(1));
+		assertEquals((int) wrapped.get(1), map.get(wrapped.get(1), -1));
+	}
+
+	@Test
+	public void addCountRemovesKeyAtZero()
+	{
+		PohItemMap map = new PohItemMap();
+		assertEquals(3, map.addCount(995, 3));
+		assertEquals(1, map.addCount(995, -2));
+		assertEquals(0, map.addCount(995, -1));
+
+		assertFalse(map.containsKey(995));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void ignoresNegativeKeys()
+	{
+		PohItemMap map = new PohItemMap();
+		map.put(-1, 5);
+		map.remove(-1);
+
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(-1));
+		assertEquals(7, map.get(-1, 7));
+	}
+
+	@Test
+	public void matchesHashMapUnderRandomUpdates()
+	{
+		Random random = new Random(42);
+		PohItemMap map = new PohItemMap(EXPECTED_SIZE);
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+		for (int i = 0; i < 100_000; i++)
+		{
+			// A small key range keeps the table crowded with long chains
+			int key = random.nextInt(64);
+			if (random.nextInt(3) == 0)
+			{
+				map.remove(key);
+				expected.remove(key);
+			}
+			else
+			{
+				map.put(key, i);
+				expected.put(key, i);
+			}
+
+			assertEquals(expected.size(), map.size());
+		}
+
+		for (int key = 0; key < 64; key++)
+		{
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+			assertEquals(expected.containsKey(key) ? expected.get(key) : -1, map.get(key, -1));
+		}
+
+		int occupied = 0;
+		for (int slot = 0; slot < map.capacity(); slot++)
+		{
+			if (map.isOccupied(slot))
+			{
+				occupied++;
+				assertTrue(expected.containsKey(map.keyAt(slot)));
+			}
+		}
+		assertEquals(expected.size(), occupied);
+	}
+
+	private static int capacity()
+	{
+		return new PohItemMap(EXPECTED_SIZE).capacity();
+	}
+
+	/**
+	 * The first {@code count} keys that a map of {@link #EXPECTED_SIZE} places at {@code slot} when it is empty.
+	 */
+	private static List<Integer> keysWithHomeSlot(int slot, int count)
+	{
+		List<Integer> keys = new ArrayList<Integer>();
+		for (int key = 0; keys.size() < count; key++)
+		{
+			PohItemMap probe = new PohItemMap(EXPECTED_SIZE);
+			probe.put(key, 0);
+			if (probe.isOccupied(slot) && probe.keyAt(slot) == key)
+			{
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+}
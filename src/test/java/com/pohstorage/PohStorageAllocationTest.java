@@ -0,0 +1,98 @@
+package com.pohstorage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays relayouts of an open unit until they are compiled, then checks that the plugin and session allocate next to
+ * nothing for them: no more than the fake widgets take for the writes made, and a fixed allowance per event.
+ */
+public class PohStorageAllocationTest
+{
+	private static final String UNIT = "ARMOUR_CASE 500 7";
+	// A setter call on a fake widget allocates its argument array and may box its value
+	private static final long FAKE_WRITE_BYTES = 32;
+	// Replaying an event, and handling the event that triggers the relayout, rather than the relayout itself
+	private static final long EVENT_BYTES = 1024;
+	private static final int WARMUP_CYCLES = 500;
+	private static final int MEASURED_CYCLES = 100;
+
+	private PohStorageReplay replay;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		replay = new PohStorageReplay();
+		// Laid out in full, the unit makes more writes than the plugin does work, so measure the windowed relayouts
+		replay.replay("config virtualizeLayout true");
+		replay.replay("open " + UNIT);
+		replay.replay("tick 3");
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		replay.shutDown();
+	}
+
+	@Test
+	public void reusedPlansAllocateNothing()
+	{
+		assertWithinTolerance("toggle Empty Sets", "toggle Full Sets", "toggle Empty Sets", "toggle Full Sets");
+	}
+
+	@Test
+	public void scrollsAllocateNothing()
+	{
+		assertWithinTolerance("scroll 2000", "scroll 0");
+	}
+
+	@Test
+	public void newPlansAllocateNothing()
+	{
+		// Every filter compiled anew misses the plan cache, and so does the order changed after it, which sorts again
+		assertWithinTolerance("config filterQuery partial AND missing<=2", "config sortOrder STORED", "config filterQuery", "config sortOrder COMPLETION");
+	}
+
+	@Test
+	public void rescansAllocateNothing()
+	{
+		// Config keys the plugin does not know rescan the unit, which finds the sets it already indexed for search
+		assertWithinTolerance("config unknownKey 1", "config unknownKey 2");
+	}
+
+	/**
+	 * Replays {@code cycle} until warmed up, then fails when replaying it again allocates more than its writes and events
+	 * allow.
+	 */
+	private void assertWithinTolerance(String... cycle)
+	{
+		for (int i = 0; i < WARMUP_CYCLES; i++)
+		{
+			for (String event : cycle)
+			{
+				replay.replay(event);
+			}
+		}
+
+		long allocated = 0;
+		long writes = 0;
+		for (int i = 0; i < MEASURED_CYCLES; i++)
+		{
+			for (String event : cycle)
+			{
+				PohStorageReplay.Event replayed = replay.replay(event);
+				allocated += replayed.allocated;
+				writes += replayed.writes;
+			}
+		}
+
+		int events = MEASURED_CYCLES * cycle.length;
+		long tolerance = writes * FAKE_WRITE_BYTES + events * EVENT_BYTES;
+		assertTrue(String.join(", ", cycle) + " allocated " + allocated / events + " bytes per event for " + writes / events
+			+ " writes, over the tolerance of " + tolerance / events, allocated <= tolerance);
+	}
+}
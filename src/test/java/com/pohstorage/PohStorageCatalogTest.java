@@ -0,0 +1,180 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pohstorage.PohStorageModel.*;
+import static com.pohstorage.StorageChildren.MISSING_OPACITY;
+import static com.pohstorage.StorageChildren.STORED_OPACITY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PohStorageCatalogTest
+{
+	private static final int ARROW_WIDTH = 9;
+	private static final int FIRST_ITEM_ID = 1000;
+
+	private Path directory;
+	private Path file;
+	private final List<Widget> children = new ArrayList<Widget>();
+
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("poh-storage");
+		file = directory.resolve("catalog.bin");
+		set("Graceful outfit", 6, 6);
+		set("Mime costume", 0, 5);
+		set("<col=ff0000>Rune-pouch set</col>", 1, 3);
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(directory);
+	}
+
+	@Test
+	public void readsBackTheSavedScan()
+	{
+		PohStorageModel scanned = save();
+
+		PohStorageCatalog catalog = new PohStorageCatalog(file);
+		PohStorageModel model = new PohStorageModel();
+		assertTrue(catalog.read(model));
+		assertTrue(model.scan());
+
+		assertEquals(scanned.getSetCount(), model.getSetCount());
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			assertEquals(scanned.getName(set), model.getName(set));
+			assertEquals(scanned.getStored(set), model.getStored(set));
+			assertEquals(scanned.getItemCount(set), model.getItemCount(set));
+			for (int item = 0; item < model.getItemCount(set); item++)
+			{
+				int child = model.getItem(set, item);
+				assertEquals(scanned.getItem(set, item), child);
+				assertEquals(children.get(child).getItemId(), catalog.getItemId(child));
+			}
+		}
+		catalog.close();
+	}
+
+	@Test
+	public void rescanUpdatesStoredStatesInPlace()
+	{
+		PohStorageCatalog catalog = new PohStorageCatalog(file);
+		PohStorageModel model = new PohStorageModel();
+		PohStorageSnapshot snapshot = new PohStorageSnapshot();
+		scan(model, snapshot);
+		catalog.save(model, snapshot);
+
+		// Store the first item of the empty set, which only changes its record
+		int child = model.getItem(1, 0);
+		children.get(child).setOpacity(STORED_OPACITY);
+		scan(model, snapshot);
+		catalog.save(model, snapshot);
+		catalog.close();
+
+		assertEquals(1, read().getStored(1));
+	}
+
+	@Test
+	public void badHeadersAreTreatedAsMissing() throws IOException
+	{
+		save();
+		writeInt(4, -1);
+		assertFalse(new PohStorageCatalog(file).read(new PohStorageModel()));
+
+		save();
+		writeInt(8, Integer.MAX_VALUE);
+		assertFalse(new PohStorageCatalog(file).read(new PohStorageModel()));
+	}
+
+	@Test
+	public void badTextLengthsAreTreatedAsMissing() throws IOException
+	{
+		PohStorageModel scanned = save();
+		// The text length of the first set header
+		int record = 20 + scanned.getHeader(0) * 12;
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putShort(record + 6, (short) -5);
+		Files.write(file, bytes);
+
+		assertFalse(new PohStorageCatalog(file).read(new PohStorageModel()));
+	}
+
+	private void set(String name, int storedItems, int items)
+	{
+		child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0);
+		child(WidgetType.GRAPHIC, ARROW_WIDTH, 0);
+		child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0);
+		child(WidgetType.TEXT, WIDGET_SET_WIDTH - WIDGET_OFFSET, 0).setText(name);
+		for (int item = 0; item < items; item++)
+		{
+			child(WidgetType.GRAPHIC, WIDGET_ICON_WIDTH, item < storedItems ? STORED_OPACITY : MISSING_OPACITY).setItemId(FIRST_ITEM_ID + children.size());
+		}
+	}
+
+	private Widget child(int type, int width, int opacity)
+	{
+		Widget child = FakeWidgets.create(children.size(), type, width, opacity);
+		children.add(child);
+		return child;
+	}
+
+	private void scan(PohStorageModel model, PohStorageSnapshot snapshot)
+	{
+		snapshot.begin(children.size());
+		model.beginScan(children.size());
+		for (Widget child : children)
+		{
+			snapshot.capture(child.getIndex(), child);
+			model.setChild(child.getIndex(), child.getType(), child.getWidth(), child.getOpacity(), child.isHidden(), child.getText());
+		}
+		assertTrue(model.getScanError(), model.scan());
+	}
+
+	/**
+	 * Saves the children with a new catalog, returning their scan.
+	 */
+	private PohStorageModel save()
+	{
+		PohStorageModel model = new PohStorageModel();
+		PohStorageSnapshot snapshot = new PohStorageSnapshot();
+		scan(model, snapshot);
+		PohStorageCatalog catalog = new PohStorageCatalog(file);
+		catalog.save(model, snapshot);
+		catalog.close();
+		return model;
+	}
+
+	private PohStorageModel read()
+	{
+		PohStorageCatalog catalog = new PohStorageCatalog(file);
+		PohStorageModel model = new PohStorageModel();
+		assertTrue(catalog.read(model));
+		catalog.close();
+		assertTrue(model.scan());
+		return model;
+	}
+
+	private void writeInt(int position, int value) throws IOException
+	{
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(position, value);
+		Files.write(file, bytes);
+	}
+}
@@ -0,0 +1,136 @@
+package com.pohstorage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PohStorageFilterTest
+{
+	private PohStorageModel model;
+
+	@Before
+	public void setUp()
+	{
+		model = StorageChildren.scanned(new StorageChildren()
+			.set("Graceful outfit", 6, 6)
+			.set("Rune-pouch set", 1, 3)
+			.set("Dragon armour", 0, 5)
+			.set("Mime costume", 4, 5));
+	}
+
+	@Test
+	public void emptyQueryMatchesEverySet()
+	{
+		assertTrue(PohStorageFilter.compile("").matchesAll());
+		assertTrue(PohStorageFilter.compile("   ").matchesAll());
+		assertEquals(Arrays.asList("graceful outfit", "rune-pouch set", "dragon armour", "mime costume"), matching(""));
+	}
+
+	@Test
+	public void andBindsTighterThanOr()
+	{
+		assertEquals(Arrays.asList("graceful outfit", "mime costume"), matching("full or partial and stored>=4"));
+		assertEquals(Arrays.asList("graceful outfit", "mime costume"), matching("partial and stored>=4 or full"));
+		assertEquals(Arrays.asList("mime costume"), matching("(full or partial) and stored>=4 and missing>0"));
+	}
+
+	@Test
+	public void notBindsTighterThanAnd()
+	{
+		assertEquals(Arrays.asList("rune-pouch set", "mime costume"), matching("not empty and not full"));
+		assertEquals(Arrays.asList("dragon armour"), matching("not (full or partial)"));
+		assertEquals(Arrays.asList("rune-pouch set", "mime costume"), matching("!empty && !full"));
+	}
+
+	@Test
+	public void adjacentTermsAreAnded()
+	{
+		assertEquals(matching("partial and missing<=2"), matching("partial missing<=2"));
+		assertEquals(Arrays.asList("rune-pouch set", "mime costume"), matching("partial missing<=2"));
+		assertEquals(Arrays.asList("mime costume"), matching("partial missing<=2 stored>1 | empty stored>0"));
+	}
+
+	@Test
+	public void dashNegatesOnlyAtTheStartOfATerm()
+	{
+		assertEquals(Arrays.asList("rune-pouch set"), matching("name:~rune-pouch"));
+		assertEquals(Arrays.asList("rune-pouch set"), matching("name:~rune-pouch partial"));
+		assertEquals(Arrays.asList("graceful outfit", "dragon armour", "mime costume"), matching("-name:~rune-pouch"));
+		assertEquals(Arrays.asList("rune-pouch set", "mime costume"), matching("-empty -full"));
+		assertEquals(Arrays.asList("mime costume"), matching("partial -name:~rune"));
+	}
+
+	@Test
+	public void comparators()
+	{
+		assertEquals(Arrays.asList("dragon armour", "mime costume"), matching("items=5"));
+		assertEquals(Arrays.asList("dragon armour", "mime costume"), matching("items:5"));
+		assertEquals(Arrays.asList("dragon armour", "mime costume"), matching("items:=5"));
+		assertEquals(Arrays.asList("graceful outfit", "rune-pouch set"), matching("items!=5"));
+		assertEquals(Arrays.asList("graceful outfit", "rune-pouch set"), matching("items<>5"));
+		assertEquals(Arrays.asList("rune-pouch set"), matching("items<5"));
+		assertEquals(Arrays.asList("rune-pouch set", "dragon armour", "mime costume"), matching("items<=5"));
+		assertEquals(Arrays.asList("graceful outfit"), matching("items>5"));
+		assertEquals(Arrays.asList("graceful outfit", "dragon armour", "mime costume"), matching("items >= 5"));
+		assertEquals(Arrays.asList("rune-pouch set", "dragon armour"), matching("missing>=2"));
+		assertEquals(Arrays.asList("dragon armour"), matching("stored=0"));
+	}
+
+	@Test
+	public void keywordsAndNamesIgnoreCase()
+	{
+		assertEquals(Arrays.asList("graceful outfit"), matching("NAME:\"Graceful Outfit\" AND Full"));
+		assertEquals(Arrays.asList("dragon armour"), matching("name:~ARMOUR"));
+		// A keyword must stand alone to be one
+		assertEquals(Arrays.asList(), matching("name:~or-nothing"));
+	}
+
+	@Test
+	public void reportsErrorPositions()
+	{
+		assertError("items>", "Expected a number at position 7");
+		assertError("(empty", "Missing ')' at position 7");
+		assertError("empty )", "Unexpected ')' at position 7");
+		assertError("bogus", "Unknown term 'bogus' at position 1");
+		assertError("full and", "Expected a term at position 9");
+		assertError("stored 3", "Expected a comparison at position 8");
+		assertError("name ~x", "Expected ':' after name at position 6");
+		assertError("name:\"Graceful", "Missing closing '\"' at position 7");
+		assertError("empty-full", "Unknown term 'empty-full' at position 1");
+		assertError("items>=1234567890", "Expected a number at position 8");
+	}
+
+	private List<String> matching(String query)
+	{
+		PohStorageFilter filter = PohStorageFilter.compile(query);
+		List<String> names = new ArrayList<String>();
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			if (filter.matches(model, set))
+			{
+				names.add(model.getSearchName(set));
+			}
+		}
+		return names;
+	}
+
+	private static void assertError(String query, String message)
+	{
+		try
+		{
+			PohStorageFilter.compile(query);
+			fail("Compiled invalid query " + query);
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith(message + " of filter query"));
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.WidgetType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.pohstorage.PohStorageModel.*;
+import static com.pohstorage.StorageChildren.MISSING_OPACITY;
+import static com.pohstorage.StorageChildren.STORED_OPACITY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PohStorageModelTest
+{
+	private static final int SETS = 40;
+	// Fewer names than sets, so sets tie on their name too
+	private static final int NAMES = 12;
+
+	private static final int STRAY_WIDTH = 50;
+
+	@Test
+	public void scansSets()
+	{
+		StorageChildren children = new StorageChildren()
+			.set("Graceful outfit", 6, 6)
+			.set("Mime costume", 0, 5)
+			.set("Rune-pouch set", 1, 3);
+
+		PohStorageModel model = assertMatchesBaseline(children);
+		assertEquals(3, model.getSetCount());
+		assertEquals(Arrays.asList(SET_TYPE_FULL, SET_TYPE_EMPTY, SET_TYPE_PARTIAL), Arrays.asList(model.getType(0), model.getType(1), model.getType(2)));
+		assertEquals("mime costume", model.getSearchName(1));
+	}
+
+	@Test
+	public void nativeDividersAreJunk()
+	{
+		StorageChildren children = new StorageChildren()
+			.divider()
+			.set("Graceful outfit", 6, 6)
+			.divider()
+			.set("Mime costume", 2, 5)
+			.divider()
+			.divider()
+			.set("Rune-pouch set", 1, 3)
+			.divider();
+
+		PohStorageModel model = assertMatchesBaseline(children);
+		assertEquals(3, model.getSetCount());
+		assertEquals(5, model.getJunkCount());
+	}
+
+	@Test
+	public void dividerEndsTheSetItInterrupts()
+	{
+		StorageChildren children = new StorageChildren()
+			.set("Graceful outfit", 3, 3)
+			.divider()
+			.item(STORED_OPACITY, false)
+			.item(MISSING_OPACITY, false)
+			.set("Mime costume", 2, 5);
+
+		PohStorageModel model = assertMatchesBaseline(children);
+		assertEquals(2, model.getSetCount());
+		assertEquals(3, model.getItemCount(0));
+		assertEquals(SET_TYPE_FULL, model.getType(0));
+	}
+
+	@Test
+	public void skipsStrayWidgetsBetweenSets()
+	{
+		StorageChildren children = new StorageChildren()
+			.child(WidgetType.GRAPHIC, STRAY_WIDTH, 0, false, null)
+			.item(MISSING_OPACITY, false)
+			.set("Graceful outfit", 6, 6)
+			.child(WidgetType.RECTANGLE, STRAY_WIDTH, 0, false, null)
+			.item(STORED_OPACITY, false)
+			.child(WidgetType.LAYER, 0, 0, true, null)
+			.set("Mime costume", 2, 5)
+			.divider()
+			.item(STORED_OPACITY, false)
+			.set("Rune-pouch set", 1, 3);
+
+		PohStorageModel model = assertMatchesBaseline(children);
+		assertEquals(3, model.getSetCount());
+		assertEquals(6, model.getItemCount(0));
+		assertEquals(1, model.getJunkCount());
+	}
+
+	@Test
+	public void strayWidgetEndsTheItemsOfASet()
+	{
+		StorageChildren children = new StorageChildren()
+			.frame()
+			.header("Graceful outfit")
+			.item(STORED_OPACITY, false)
+			.child(WidgetType.GRAPHIC, STRAY_WIDTH, 0, false, null)
+			.item(STORED_OPACITY, false)
+			.item(MISSING_OPACITY, false);
+
+		PohStorageModel model = assertMatchesBaseline(children);
+		assertEquals(1, model.getSetCount());
+		assertEquals(1, model.getItemCount(0));
+	}
+
+	@Test
+	public void hiddenItemsAreNotCounted()
+	{
+		StorageChildren children = new StorageChildren()
+			.frame()
+			.header("Graceful outfit")
+			.item(STORED_OPACITY, false)
+			.item(MISSING_OPACITY, true)
+			.item(STORED_OPACITY, false)
+			.set("Mime costume", 0, 0);
+
+		PohStorageModel model = assertMatchesBaseline(children);
+		assertEquals(2, model.getItemCount(0));
+		assertEquals(SET_TYPE_FULL, model.getType(0));
+		assertEquals(0, model.getItemCount(1));
+	}
+
+	@Test
+	public void failsOnHeaderWithoutFrame()
+	{
+		assertScanFails(new StorageChildren()
+			.header("Graceful outfit")
+			.item(STORED_OPACITY, false), 0);
+
+		assertScanFails(new StorageChildren()
+			.set("Graceful outfit", 6, 6)
+			.child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null)
+			.header("Mime costume"), 11);
+	}
+
+	@Test
+	public void failsOnFrameBrokenByDividerOrGap()
+	{
+		assertScanFails(new StorageChildren()
+			.child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null)
+			.child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null)
+			.divider()
+			.child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null)
+			.header("Graceful outfit"), 4);
+
+		assertScanFails(new StorageChildren()
+			.set("Graceful outfit", 6, 6)
+			.child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null)
+			.gap()
+			.child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null)
+			.child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null)
+			.header("Mime costume"), 14);
+	}
+
+	@Test
+	public void failedScanLeavesNoSets()
+	{
+		PohStorageModel model = StorageChildren.scanned(new StorageChildren().set("Graceful outfit", 6, 6));
+		assertFalse(new StorageChildren().set("Graceful outfit", 6, 6).header("Mime costume").scan(model));
+		assertEquals(0, model.getSetCount());
+		assertEquals(0, model.getJunkCount());
+
+		assertTrue(new StorageChildren().set("Graceful outfit", 6, 6).scan(model));
+		assertNull(model.getScanError());
+		assertEquals(1, model.getSetCount());
+	}
+
+	@Test
+	public void resortMatchesFullSortUnderRandomUpdates()
+	{
+		for (int order : new int[]{SORT_BY_NAME, SORT_BY_COMPLETION, SORT_BY_STORED, SORT_BY_ITEMS})
+		{
+			Random random = new Random(order);
+			String[] names = new String[SETS];
+			int[] items = new int[SETS];
+			int[] stored = new int[SETS];
+			for (int set = 0; set < SETS; set++)
+			{
+				names[set] = "Set " + random.nextInt(NAMES);
+				// Includes sets without items, which sort as empty
+				items[set] = random.nextInt(9);
+				stored[set] = items[set] == 0 ? 0 : random.nextInt(items[set] + 1);
+			}
+
+			PohStorageModel model = StorageChildren.scanned(children(names, items, stored));
+			model.sort(order);
+
+			for (int update = 0; update < 300; update++)
+			{
+				boolean rescan = update % 10 == 0;
+				for (int change = random.nextInt(4); change >= 0; change--)
+				{
+					int set = random.nextInt(SETS);
+					stored[set] = random.nextInt(items[set] + 1);
+					if (!rescan)
+					{
+						model.setStored(set, stored[set]);
+					}
+				}
+				if (rescan)
+				{
+					// A rescan finding the same sets keeps their order and resorts only the changed ones
+					children(names, items, stored).scan(model);
+				}
+				model.sort(order);
+
+				PohStorageModel reference = StorageChildren.scanned(children(names, items, stored));
+				reference.sort(order);
+				assertArrayEquals("order " + order + " after update " + update, sortedSets(reference), sortedSets(model));
+			}
+		}
+	}
+
+	/**
+	 * Scans {@code children} and checks the sets, their items and stored counts, and the junk against what the scanner
+	 * that read the widgets directly found.
+	 */
+	private static PohStorageModel assertMatchesBaseline(StorageChildren children)
+	{
+		PohStorageModel model = StorageChildren.scanned(children);
+		List<List<Integer>> baselineSets = new ArrayList<List<Integer>>();
+		List<Integer> baselineJunk = new ArrayList<Integer>();
+		scanBaseline(children, baselineSets, baselineJunk);
+
+		List<List<Integer>> sets = new ArrayList<List<Integer>>();
+		for (int set = 0; set < model.getSetCount(); set++)
+		{
+			List<Integer> scanned = new ArrayList<Integer>();
+			scanned.add(model.getHeader(set));
+			scanned.add(model.getStored(set));
+			for (int item = 0; item < model.getItemCount(set); item++)
+			{
+				scanned.add(model.getItem(set, item));
+			}
+			sets.add(scanned);
+		}
+		List<Integer> junk = new ArrayList<Integer>();
+		for (int i = 0; i < model.getJunkCount(); i++)
+		{
+			junk.add(model.getJunk(i));
+		}
+
+		assertEquals(baselineSets, sets);
+		assertEquals(baselineJunk, junk);
+		return model;
+	}
+
+	/**
+	 * The scan of the original plugin: every TEXT child heads a set, whose items are the visible children of icon width
+	 * directly after it, and every other child of divider width is junk. Each set is listed as its header, its stored
+	 * count and its items.
+	 */
+	private static void scanBaseline(StorageChildren children, List<List<Integer>> sets, List<Integer> junk)
+	{
+		for (int i = 0; i < children.size(); i++)
+		{
+			if (children.isGap(i))
+			{
+				continue;
+			}
+
+			if (children.getType(i) == WidgetType.TEXT)
+			{
+				List<Integer> set = new ArrayList<Integer>();
+				set.add(i);
+				set.add(0);
+				for (int item = i + 1; item < children.size() && !children.isGap(item) && children.getWidth(item) == WIDGET_ICON_WIDTH; item++)
+				{
+					if (!children.isHidden(item))
+					{
+						set.add(item);
+						if (children.getOpacity(item) == 0)
+						{
+							set.set(1, set.get(1) + 1);
+						}
+					}
+				}
+				sets.add(set);
+			}
+			else if (children.getWidth(i) == WIDGET_DIVIDER_WIDTH)
+			{
+				junk.add(i);
+			}
+		}
+	}
+
+	private static void assertScanFails(StorageChildren children, int child)
+	{
+		PohStorageModel model = new PohStorageModel();
+		assertFalse(children.scan(model));
+		assertEquals(0, model.getSetCount());
+		assertTrue(model.getScanError(), model.getScanError().startsWith("Unexpected storage layout at child " + child + " of "));
+	}
+
+	private static StorageChildren children(String[] names, int[] items, int[] stored)
+	{
+		StorageChildren children = new StorageChildren();
+		for (int set = 0; set < names.length; set++)
+		{
+			children.set(names[set], stored[set], items[set]);
+		}
+		return children;
+	}
+
+	private static int[] sortedSets(PohStorageModel model)
+	{
+		model.filter(true, true, true, null);
+		int[] sets = new int[model.getVisibleCount()];
+		for (int position = 0; position < sets.length; position++)
+		{
+			sets[position] = model.getVisibleSet(position);
+		}
+		return sets;
+	}
+}
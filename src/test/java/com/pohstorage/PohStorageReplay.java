@@ -0,0 +1,727 @@
+package com.pohstorage;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.MenuEntry;
+import net.runelite.api.NodeCache;
+import net.runelite.api.ScriptEvent;
+import net.runelite.api.SpritePixels;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.MenuOptionClicked;
+import net.runelite.api.events.WidgetClosed;
+import net.runelite.api.events.WidgetLoaded;
+import net.runelite.api.widgets.JavaScriptCallback;
+import net.runelite.api.widgets.Widget;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.chat.ChatMessageManager;
+import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.overlay.OverlayManager;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the real plugin through recorded storage unit sessions against a {@link FakeStorageInterface}, measuring the
+ * latency, slowest frame, frames taken, widget writes, revalidations, scripts run and bytes allocated of every event.
+ * Each event is handled the way the client would: its subscriber is called, queued client thread work is drained, and
+ * client ticks follow until the relayouts it triggered have been computed in the background and fully applied.
+ *
+ * <p>Recordings are read from the {@code replay/} resources, one event per line ({@code #} starts a comment), each
+ * optionally followed by its budget after a {@code |}, e.g. {@code toggle Empty Sets | frame 20 writes 150 scripts 1}
+ * for at most a 20 ms frame, 150 widget writes and one script. Events:
+ * <pre>
+ * open ARMOUR_CASE 120 7     open a unit with 120 sets generated from seed 7
+ * inventory 10               put 10 missing set items in the inventory
+ * bank 20                    put 20 missing set items in a bank of unrelated items
+ * click deposit 4            click 4 inventory items to store them, or "all" for the deposit inventory button
+ * deposit 4                  deposit 4 inventory items into the unit, or "all" for the deposit inventory button
+ * withdraw 3                 withdraw 3 stored items into the inventory
+ * config sortOrder STORED    change a config item
+ * toggle Empty Sets          click a set type checkbox
+ * scroll 400                 scroll the item container
+ * tick 5                     run client ticks
+ * gametick 5                 run game ticks, one client tick each
+ * close                      close the unit
+ * </pre>
+ */
+class PohStorageReplay
+{
+	private static final String RESOURCE_DIRECTORY = "replay/";
+	private static final String CONFIG_GROUP = "pohstorage";
+	private static final int INVENTORY_WIDGET_ID = 149 << 16;
+	private static final int BANK_FILLER_ITEMS = 800;
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private final long[] threadIds = {Thread.currentThread().getId(), -1};
+
+	private final ReplayClientThread clientThread = new ReplayClientThread();
+	private final ReplayConfig config = new ReplayConfig();
+	private final PohStoragePlugin plugin = new PohStoragePlugin();
+	private final Client client;
+	private final Map<Integer, SpritePixels> spriteOverrides = new HashMap<Integer, SpritePixels>();
+	private final NodeCache spriteCache = mock(NodeCache.class);
+	private final List<Integer> inventory = new ArrayList<Integer>();
+	private final List<Integer> bank = new ArrayList<Integer>();
+	private FakeStorageInterface storage;
+	private long scripts;
+	private int gameTicks;
+
+	PohStorageReplay() throws Exception
+	{
+		client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class}, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "getWidget":
+					return storage != null && (Integer) args[0] == FakeStorageInterface.GROUP_ID ? storage.getWidget((Integer) args[1]) : null;
+				case "runScript":
+					scripts++;
+					return null;
+				case "getTickCount":
+					return gameTicks;
+				case "getAccountHash":
+					// Logged out, so no catalogs are read or written
+					return -1L;
+				case "getSpriteOverrides":
+					return spriteOverrides;
+				case "getWidgetSpriteCache":
+					return spriteCache;
+				case "createSpritePixels":
+					return mock(SpritePixels.class);
+				case "isClientThread":
+					return true;
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+			}
+			Class<?> returnType = method.getReturnType();
+			return returnType == int.class ? (Object) 0 : returnType == boolean.class ? (Object) false : null;
+		});
+
+		ItemManager itemManager = mock(ItemManager.class);
+		when(itemManager.getItemComposition(anyInt())).thenAnswer(invocation ->
+		{
+			ItemComposition composition = mock(ItemComposition.class);
+			when(composition.getName()).thenReturn("Item " + invocation.getArgument(0));
+			return composition;
+		});
+
+		Guice.createInjector(new AbstractModule()
+		{
+			@Override
+			protected void configure()
+			{
+				bind(Client.class).toInstance(client);
+				bind(ClientThread.class).toInstance(clientThread);
+				bind(PohStorageConfig.class).toInstance(config);
+				bind(ConfigManager.class).toInstance(mock(ConfigManager.class));
+				bind(ItemManager.class).toInstance(itemManager);
+				bind(ClientToolbar.class).toInstance(mock(ClientToolbar.class));
+				bind(ChatMessageManager.class).toInstance(mock(ChatMessageManager.class));
+				bind(OverlayManager.class).toInstance(mock(OverlayManager.class));
+				bind(PohStoragePlugin.class).toInstance(plugin);
+			}
+		});
+
+		plugin.startUp();
+		clientThread.drain();
+	}
+
+	/**
+	 * Replays the bundled {@code recording}, returning the measurements of each of its events.
+	 */
+	List<Event> run(String recording) throws IOException
+	{
+		List<Event> events = new ArrayList<Event>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(open(recording), StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				int comment = line.indexOf('#');
+				String event = (comment >= 0 ? line.substring(0, comment) : line).trim();
+				if (!event.isEmpty())
+				{
+					int budget = event.indexOf('|');
+					Event replayed = replay(budget >= 0 ? event.substring(0, budget).trim() : event);
+					if (budget >= 0)
+					{
+						replayed.setBudget(event.substring(budget + 1).trim());
+					}
+					events.add(replayed);
+				}
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Shuts the plugin down as the client would, closing any open unit.
+	 */
+	void shutDown() throws Exception
+	{
+		plugin.shutDown();
+		clientThread.drain();
+	}
+
+	/**
+	 * Replays one {@code event} of a recording, without its budget, returning its measurements.
+	 */
+	Event replay(String event)
+	{
+		String[] words = event.split("\\s+", 2);
+		String argument = words.length > 1 ? words[1] : "";
+		Runnable dispatch;
+		switch (words[0])
+		{
+			case "open":
+				dispatch = open(argument.split("\\s+"));
+				break;
+			case "inventory":
+				dispatch = inventory(Integer.parseInt(argument));
+				break;
+			case "bank":
+				dispatch = bank(Integer.parseInt(argument));
+				break;
+			case "deposit":
+				dispatch = deposit(argument.equals("all") ? Integer.MAX_VALUE : Integer.parseInt(argument));
+				break;
+			case "withdraw":
+				dispatch = withdraw(Integer.parseInt(argument));
+				break;
+			case "click":
+				String clicked = argument.substring(argument.indexOf(' ') + 1);
+				dispatch = clickDeposit(clicked.equals("all") ? -1 : Integer.parseInt(clicked));
+				break;
+			case "config":
+				dispatch = config(argument.split("\\s+", 2));
+				break;
+			case "toggle":
+				dispatch = toggle(argument);
+				break;
+			case "scroll":
+				storage.getWidget(FakeStorageInterface.ITEM_CONTAINER).setScrollY(Integer.parseInt(argument));
+				dispatch = () -> {};
+				break;
+			case "tick":
+				int ticks = argument.isEmpty() ? 1 : Integer.parseInt(argument);
+				// The tick following every event is the last of them
+				dispatch = () ->
+				{
+					for (int i = 1; i < ticks; i++)
+					{
+						tick();
+					}
+				};
+				break;
+			case "gametick":
+				int gameTickCount = argument.isEmpty() ? 1 : Integer.parseInt(argument);
+				dispatch = () ->
+				{
+					for (int i = 0; i < gameTickCount; i++)
+					{
+						gameTicks++;
+						if (i > 0)
+						{
+							tick();
+						}
+					}
+				};
+				break;
+			case "close":
+				dispatch = () -> plugin.onWidgetClosed(new WidgetClosed(FakeStorageInterface.GROUP_ID, 0, true));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown replay event: " + event);
+		}
+
+		long writes = FakeWidgets.getWrites();
+		long revalidations = FakeWidgets.getRevalidations();
+		long scriptsBefore = scripts;
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+
+		dispatch.run();
+		tick();
+		long worstFrame = System.nanoTime() - start;
+		long frames = 1;
+		while (isRelayoutPending())
+		{
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+			long frameStart = System.nanoTime();
+			tick();
+			worstFrame = Math.max(worstFrame, System.nanoTime() - frameStart);
+			frames++;
+		}
+
+		Event replayed = new Event(event);
+		replayed.elapsed = System.nanoTime() - start;
+		replayed.worstFrame = worstFrame;
+		replayed.frames = frames;
+		replayed.writes = FakeWidgets.getWrites() - writes;
+		replayed.revalidations = FakeWidgets.getRevalidations() - revalidations;
+		replayed.scripts = scripts - scriptsBefore;
+		replayed.allocated = allocatedBytes() - allocated;
+		return replayed;
+	}
+
+	private boolean isRelayoutPending()
+	{
+		PohStorageSession session = plugin.getSession();
+		return session != null && session.isRelayoutPending();
+	}
+
+	private Runnable open(String[] arguments)
+	{
+		storage = new FakeStorageInterface(PohStorageUnit.valueOf(arguments[0]), Integer.parseInt(arguments[1]), Long.parseLong(arguments[2]));
+		WidgetLoaded widgetLoaded = new WidgetLoaded();
+		widgetLoaded.setGroupId(FakeStorageInterface.GROUP_ID);
+		return () -> plugin.onWidgetLoaded(widgetLoaded);
+	}
+
+	private Runnable inventory(int count)
+	{
+		for (Widget icon : storage.getItems())
+		{
+			if (count > 0 && !FakeStorageInterface.isStored(icon) && !inventory.contains(icon.getItemId()))
+			{
+				inventory.add(icon.getItemId());
+				count--;
+			}
+		}
+		return inventoryChanged();
+	}
+
+	private Runnable bank(int count)
+	{
+		// Item ids below those of the generated sets
+		for (int id = bank.size(); id < BANK_FILLER_ITEMS; id++)
+		{
+			bank.add(id);
+		}
+		for (Widget icon : storage.getItems())
+		{
+			if (count > 0 && !FakeStorageInterface.isStored(icon) && !bank.contains(icon.getItemId()))
+			{
+				bank.add(icon.getItemId());
+				count--;
+			}
+		}
+
+		Item[] items = new Item[bank.size()];
+		for (int i = 0; i < items.length; i++)
+		{
+			items[i] = new Item(bank.get(i), 1);
+		}
+
+		ItemContainer container = mock(ItemContainer.class);
+		when(container.getItems()).thenReturn(items);
+		ItemContainerChanged itemContainerChanged = new ItemContainerChanged(InventoryID.BANK.getId(), container);
+		return () -> plugin.onItemContainerChanged(itemContainerChanged);
+	}
+
+	private Runnable deposit(int count)
+	{
+		for (Widget icon : storage.getItems())
+		{
+			if (count > 0 && inventory.remove((Integer) icon.getItemId()))
+			{
+				icon.setOpacity(FakeStorageInterface.STORED_OPACITY);
+				count--;
+			}
+		}
+		return inventoryChanged();
+	}
+
+	/**
+	 * Clicks the deposit inventory button when {@code count} is negative, otherwise {@code count} inventory items,
+	 * without the server acting on it.
+	 */
+	private Runnable clickDeposit(int count)
+	{
+		if (count < 0)
+		{
+			MenuEntry button = mock(MenuEntry.class);
+			when(button.getOption()).thenReturn("Deposit inventory");
+			when(button.getParam1()).thenReturn(FakeStorageInterface.GROUP_ID << 16 | FakeStorageInterface.DEPOSIT_INVENTORY_BUTTON);
+			when(button.getItemId()).thenReturn(-1);
+			return () -> plugin.onMenuOptionClicked(new MenuOptionClicked(button));
+		}
+
+		List<MenuOptionClicked> clicks = new ArrayList<MenuOptionClicked>();
+		for (int i = 0; i < Math.min(count, inventory.size()); i++)
+		{
+			MenuEntry item = mock(MenuEntry.class);
+			when(item.getOption()).thenReturn("Store");
+			when(item.getParam1()).thenReturn(INVENTORY_WIDGET_ID);
+			when(item.getItemId()).thenReturn(inventory.get(i));
+			clicks.add(new MenuOptionClicked(item));
+		}
+		return () -> clicks.forEach(plugin::onMenuOptionClicked);
+	}
+
+	private Runnable withdraw(int count)
+	{
+		for (Widget icon : storage.getItems())
+		{
+			if (count > 0 && FakeStorageInterface.isStored(icon))
+			{
+				icon.setOpacity(FakeStorageInterface.MISSING_OPACITY);
+				inventory.add(icon.getItemId());
+				count--;
+			}
+		}
+		return inventoryChanged();
+	}
+
+	private Runnable inventoryChanged()
+	{
+		Item[] items = new Item[inventory.size()];
+		for (int i = 0; i < items.length; i++)
+		{
+			items[i] = new Item(inventory.get(i), 1);
+		}
+
+		ItemContainer container = mock(ItemContainer.class);
+		when(container.getItems()).thenReturn(items);
+		ItemContainerChanged itemContainerChanged = new ItemContainerChanged(InventoryID.INVENTORY.getId(), container);
+		return () -> plugin.onItemContainerChanged(itemContainerChanged);
+	}
+
+	private Runnable config(String[] arguments)
+	{
+		ConfigChanged configChanged = new ConfigChanged();
+		configChanged.setGroup(CONFIG_GROUP);
+		configChanged.setKey(arguments[0]);
+		configChanged.setOldValue(config.set(arguments[0], arguments.length > 1 ? arguments[1] : null));
+		configChanged.setNewValue(arguments.length > 1 ? arguments[1] : null);
+		return () -> plugin.onConfigChanged(configChanged);
+	}
+
+	private Runnable toggle(String name)
+	{
+		for (Widget child : storage.getWidget(FakeStorageInterface.TITLE_CONTAINER).getDynamicChildren())
+		{
+			if (name.equals(child.getName()) && child.getOnOpListener() != null)
+			{
+				JavaScriptCallback listener = (JavaScriptCallback) child.getOnOpListener()[0];
+				ScriptEvent scriptEvent = mock(ScriptEvent.class);
+				when(scriptEvent.getSource()).thenReturn(child);
+				return () -> listener.run(scriptEvent);
+			}
+		}
+		throw new IllegalArgumentException("No control named " + name);
+	}
+
+	private void tick()
+	{
+		clientThread.drain();
+		// The subscriber does not read its event
+		plugin.onClientTick(null);
+		clientThread.drain();
+	}
+
+	/**
+	 * Bytes allocated so far by the replaying thread and the layout thread.
+	 */
+	private long allocatedBytes()
+	{
+		if (threadIds[1] == -1)
+		{
+			for (Thread thread : Thread.getAllStackTraces().keySet())
+			{
+				if (thread.getName().equals(PohStoragePlugin.LAYOUT_THREAD_NAME))
+				{
+					threadIds[1] = thread.getId();
+				}
+			}
+		}
+
+		long allocated = threads.getThreadAllocatedBytes(threadIds[0]);
+		return threadIds[1] == -1 ? allocated : allocated + threads.getThreadAllocatedBytes(threadIds[1]);
+	}
+
+	/**
+	 * A table of the measurements of {@code events}, one row each.
+	 */
+	static String report(List<Event> events)
+	{
+		StringBuilder builder = new StringBuilder(String.format("  %-40s %9s %9s %6s %7s %7s %7s %11s", "event", "ms", "frame ms", "frames", "writes", "revals", "scripts", "bytes"));
+		for (Event event : events)
+		{
+			builder.append(String.format("%n  %-40s %9s %9s %6d %7d %7d %7d %11d", event.name, PohStorageMetrics.formatMillis(event.elapsed),
+				PohStorageMetrics.formatMillis(event.worstFrame), event.frames, event.writes, event.revalidations, event.scripts, event.allocated));
+		}
+		return builder.toString();
+	}
+
+	private static InputStream open(String recording) throws IOException
+	{
+		InputStream resource = PohStorageReplay.class.getResourceAsStream(RESOURCE_DIRECTORY + recording);
+		if (resource == null)
+		{
+			throw new IOException("No recording named " + recording);
+		}
+		return resource;
+	}
+
+	/**
+	 * What one replayed event took, and the budget the recording gives it: a frame budget of -1 when it gives none,
+	 * and no writes or scripts unless it allows some.
+	 */
+	static class Event
+	{
+		final String name;
+		long elapsed;
+		long worstFrame;
+		long frames;
+		long writes;
+		long revalidations;
+		long scripts;
+		long allocated;
+
+		long frameBudget = -1;
+		long writeBudget;
+		long scriptBudget;
+
+		Event(String name)
+		{
+			this.name = name;
+		}
+
+		/**
+		 * Reads a budget such as {@code frame 20 writes 150 scripts 1}, in milliseconds for the frame.
+		 */
+		private void setBudget(String budget)
+		{
+			String[] words = budget.split("\\s+");
+			for (int i = 0; i + 1 < words.length; i += 2)
+			{
+				long value = Long.parseLong(words[i + 1]);
+				switch (words[i])
+				{
+					case "frame":
+						frameBudget = TimeUnit.MILLISECONDS.toNanos(value);
+						break;
+					case "writes":
+						writeBudget = value;
+						break;
+					case "scripts":
+						scriptBudget = value;
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown budget: " + words[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs client thread work when drained, as the client does between frames. Work submitted while draining waits for
+	 * the next drain, and a supplier returning false is retried then. Work may be submitted from any thread.
+	 */
+	private static class ReplayClientThread extends ClientThread
+	{
+		private final Queue<BooleanSupplier> pending = new ConcurrentLinkedQueue<BooleanSupplier>();
+
+		@Override
+		public void invoke(Runnable runnable)
+		{
+			runnable.run();
+		}
+
+		@Override
+		public void invoke(BooleanSupplier supplier)
+		{
+			if (!supplier.getAsBoolean())
+			{
+				pending.add(supplier);
+			}
+		}
+
+		@Override
+		public void invokeLater(Runnable runnable)
+		{
+			pending.add(() ->
+			{
+				runnable.run();
+				return true;
+			});
+		}
+
+		@Override
+		public void invokeLater(BooleanSupplier supplier)
+		{
+			pending.add(supplier);
+		}
+
+		void drain()
+		{
+			for (int i = pending.size(); i > 0; i--)
+			{
+				BooleanSupplier supplier = pending.poll();
+				if (!supplier.getAsBoolean())
+				{
+					pending.add(supplier);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Config values set by the recording, falling back to the declared defaults.
+	 */
+	private static class ReplayConfig implements PohStorageConfig
+	{
+		private final Map<String, String> values = new HashMap<String, String>();
+
+		/**
+		 * Sets {@code key} to {@code value}, or back to its default when null, returning the previous value.
+		 */
+		String set(String key, String value)
+		{
+			return value == null ? values.remove(key) : values.put(key, value);
+		}
+
+		@Override
+		public preserveFilters preserveFilters()
+		{
+			return values.containsKey("preserveFilters") ? preserveFilters.valueOf(values.get("preserveFilters")) : PohStorageConfig.super.preserveFilters();
+		}
+
+		@Override
+		public Color fullSetShade()
+		{
+			return color("fullSetShade", PohStorageConfig.super.fullSetShade());
+		}
+
+		@Override
+		public Color partialSetShade()
+		{
+			return color("partialSetShade", PohStorageConfig.super.partialSetShade());
+		}
+
+		@Override
+		public Color emptySetShade()
+		{
+			return color("emptySetShade", PohStorageConfig.super.emptySetShade());
+		}
+
+		@Override
+		public int shadeOpacity()
+		{
+			return values.containsKey("shadeOpacity") ? Integer.parseInt(values.get("shadeOpacity")) : PohStorageConfig.super.shadeOpacity();
+		}
+
+		@Override
+		public boolean virtualizeLayout()
+		{
+			return bool("virtualizeLayout", PohStorageConfig.super.virtualizeLayout());
+		}
+
+		@Override
+		public int viewportMargin()
+		{
+			return values.containsKey("viewportMargin") ? Integer.parseInt(values.get("viewportMargin")) : PohStorageConfig.super.viewportMargin();
+		}
+
+		@Override
+		public int applyBudget()
+		{
+			return values.containsKey("applyBudget") ? Integer.parseInt(values.get("applyBudget")) : PohStorageConfig.super.applyBudget();
+		}
+
+		@Override
+		public boolean showPerformanceOverlay()
+		{
+			return bool("showPerformanceOverlay", PohStorageConfig.super.showPerformanceOverlay());
+		}
+
+		@Override
+		public String filterQuery()
+		{
+			return values.containsKey("filterQuery") ? values.get("filterQuery") : PohStorageConfig.super.filterQuery();
+		}
+
+		@Override
+		public sortOrder sortOrder()
+		{
+			return values.containsKey("sortOrder") ? sortOrder.valueOf(values.get("sortOrder")) : PohStorageConfig.super.sortOrder();
+		}
+
+		@Override
+		public boolean showPartialSets()
+		{
+			return bool("showPartialSets", PohStorageConfig.super.showPartialSets());
+		}
+
+		@Override
+		public void showPartialSets(boolean show)
+		{
+			values.put("showPartialSets", Boolean.toString(show));
+		}
+
+		@Override
+		public boolean showEmptySets()
+		{
+			return bool("showEmptySets", PohStorageConfig.super.showEmptySets());
+		}
+
+		@Override
+		public void showEmptySets(boolean show)
+		{
+			values.put("showEmptySets", Boolean.toString(show));
+		}
+
+		@Override
+		public boolean showFullSets()
+		{
+			return bool("showFullSets", PohStorageConfig.super.showFullSets());
+		}
+
+		@Override
+		public void showFullSets(boolean show)
+		{
+			values.put("showFullSets", Boolean.toString(show));
+		}
+
+		private boolean bool(String key, boolean defaultValue)
+		{
+			return values.containsKey(key) ? Boolean.parseBoolean(values.get(key)) : defaultValue;
+		}
+
+		// Colors are written as hex ARGB, e.g. 8000ff00
+		private Color color(String key, Color defaultValue)
+		{
+			return values.containsKey(key) ? new Color((int) Long.parseLong(values.get(key), 16), true) : defaultValue;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.pohstorage;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.pohstorage.PohStorageMetrics.formatMillis;
+import static org.junit.Assert.assertTrue;
+
+public class PohStorageReplayTest
+{
+	private static final String[] RECORDINGS = {"deposit.replay", "config.replay"};
+	// Frame times depend on the machine running the test, so their budgets are only checked on request
+	private static final boolean CHECK_FRAME_BUDGETS = Boolean.getBoolean("pohstorage.frameBudgets");
+	// The worst frame of an event the recording gives no frame budget, a client tick at 50 frames per second
+	private static final long FRAME_BUDGET = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final int WARMUP_RUNS = 5;
+	// Each event is held to its fastest run, so a collection pause in one run does not fail it
+	private static final int MEASURED_RUNS = 3;
+
+	@BeforeClass
+	public static void warmUp() throws Exception
+	{
+		// Frame times only mean something once the relayout is compiled
+		for (int run = 0; run < WARMUP_RUNS; run++)
+		{
+			for (String recording : RECORDINGS)
+			{
+				replay(recording);
+			}
+		}
+	}
+
+	@Test
+	public void depositsStayWithinBudget() throws Exception
+	{
+		assertWithinBudget("deposit.replay");
+	}
+
+	@Test
+	public void configChangesStayWithinBudget() throws Exception
+	{
+		assertWithinBudget("config.replay");
+	}
+
+	private static void assertWithinBudget(String recording) throws Exception
+	{
+		List<PohStorageReplay.Event> fastest = replay(recording);
+		for (int run = 1; run < MEASURED_RUNS; run++)
+		{
+			List<PohStorageReplay.Event> events = replay(recording);
+			for (int i = 0; i < events.size(); i++)
+			{
+				if (events.get(i).worstFrame < fastest.get(i).worstFrame)
+				{
+					fastest.set(i, events.get(i));
+				}
+			}
+		}
+
+		String report = String.format("%n%s%n%s", recording, PohStorageReplay.report(fastest));
+		System.out.println(report);
+		for (PohStorageReplay.Event event : fastest)
+		{
+			long frameBudget = event.frameBudget < 0 ? FRAME_BUDGET : event.frameBudget;
+			if (CHECK_FRAME_BUDGETS)
+			{
+				assertTrue(event.name + " took a " + formatMillis(event.worstFrame) + " ms frame, over its " + formatMillis(frameBudget) + " ms budget" + report,
+					event.worstFrame <= frameBudget);
+			}
+			assertTrue(event.name + " wrote " + event.writes + " widget properties, over its budget of " + event.writeBudget + report,
+				event.writes <= event.writeBudget);
+			assertTrue(event.name + " ran " + event.scripts + " scripts, over its budget of " + event.scriptBudget + report,
+				event.scripts <= event.scriptBudget);
+		}
+	}
+
+	private static List<PohStorageReplay.Event> replay(String recording) throws Exception
+	{
+		PohStorageReplay replay = new PohStorageReplay();
+		try
+		{
+			return replay.run(recording);
+		}
+		finally
+		{
+			replay.shutDown();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.pohstorage;
+
+import net.runelite.api.widgets.WidgetType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pohstorage.PohStorageModel.*;
+
+/**
+ * The children of a storage unit's item container as {@link PohStorageModel#scan()} reads them, built one set or
+ * divider at a time.
+ */
+class StorageChildren
+{
+	static final int STORED_OPACITY = 0;
+	static final int MISSING_OPACITY = 150;
+
+	private static final int ARROW_WIDTH = 9;
+
+	private final List<Integer> types = new ArrayList<Integer>();
+	private final List<Integer> widths = new ArrayList<Integer>();
+	private final List<Integer> opacities = new ArrayList<Integer>();
+	private final List<Boolean> hidden = new ArrayList<Boolean>();
+	private final List<String> texts = new ArrayList<String>();
+
+	/**
+	 * Adds a set named {@code name} whose first {@code storedItems} of {@code items} items are stored.
+	 */
+	StorageChildren set(String name, int storedItems, int items)
+	{
+		frame();
+		child(WidgetType.TEXT, WIDGET_SET_WIDTH - WIDGET_OFFSET, 0, false, name);
+		for (int item = 0; item < items; item++)
+		{
+			item(item < storedItems ? STORED_OPACITY : MISSING_OPACITY, false);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the outline, arrow and footer that precede a set header.
+	 */
+	StorageChildren frame()
+	{
+		child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null);
+		child(WidgetType.GRAPHIC, ARROW_WIDTH, 0, false, null);
+		child(WidgetType.GRAPHIC, WIDGET_SET_WIDTH, 0, false, null);
+		return this;
+	}
+
+	StorageChildren header(String name)
+	{
+		return child(WidgetType.TEXT, WIDGET_SET_WIDTH - WIDGET_OFFSET, 0, false, name);
+	}
+
+	StorageChildren item(int opacity, boolean itemHidden)
+	{
+		return child(WidgetType.GRAPHIC, WIDGET_ICON_WIDTH, opacity, itemHidden, null);
+	}
+
+	StorageChildren divider()
+	{
+		return child(WidgetType.GRAPHIC, WIDGET_DIVIDER_WIDTH, 0, false, null);
+	}
+
+	StorageChildren child(int type, int width, int opacity, boolean childHidden, String text)
+	{
+		types.add(type);
+		widths.add(width);
+		opacities.add(opacity);
+		hidden.add(childHidden);
+		texts.add(text);
+		return this;
+	}
+
+	/**
+	 * Leaves a gap in the child indexes, as a child removed by the client does.
+	 */
+	StorageChildren gap()
+	{
+		return child(-1, 0, 0, false, null);
+	}
+
+	int size()
+	{
+		return types.size();
+	}
+
+	boolean isGap(int index)
+	{
+		return types.get(index) < 0;
+	}
+
+	int getType(int index)
+	{
+		return types.get(index);
+	}
+
+	int getWidth(int index)
+	{
+		return widths.get(index);
+	}
+
+	int getOpacity(int index)
+	{
+		return opacities.get(index);
+	}
+
+	boolean isHidden(int index)
+	{
+		return hidden.get(index);
+	}
+
+	/**
+	 * Scans the children into {@code model}, returning whether their structure was recognised.
+	 */
+	boolean scan(PohStorageModel model)
+	{
+		model.beginScan(types.size());
+		for (int i = 0; i < types.size(); i++)
+		{
+			if (types.get(i) >= 0)
+			{
+				model.setChild(i, types.get(i), widths.get(i), opacities.get(i), hidden.get(i), texts.get(i));
+			}
+		}
+		return model.scan();
+	}
+
+	static PohStorageModel scanned(StorageChildren children)
+	{
+		PohStorageModel model = new PohStorageModel();
+		if (!children.scan(model))
+		{
+			throw new IllegalStateException(model.getScanError());
+		}
+		return model;
+	}
+}